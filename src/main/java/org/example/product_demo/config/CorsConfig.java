@@ -29,7 +29,7 @@ public class CorsConfig implements WebMvcConfigurer {
                 .allowedOrigins(ALLOWED_ORIGINS.toArray(new String[0]))
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH", "HEAD")
                 .allowedHeaders("*")
-                .exposedHeaders("Authorization", "Content-Type", "Content-Length", "Content-Disposition")
+                .exposedHeaders("Authorization", "Content-Type", "Content-Length", "Content-Disposition", "ETag", "Idempotent-Replayed")
                 .allowCredentials(true)
                 .maxAge(3600);
     }
@@ -52,7 +52,7 @@ public class CorsConfig implements WebMvcConfigurer {
         
         // Expose headers to client
         config.setExposedHeaders(Arrays.asList(
-            "Authorization", "Content-Type", "Content-Length", "Content-Disposition",
+            "Authorization", "Content-Type", "Content-Length", "Content-Disposition", "ETag", "Idempotent-Replayed",
             "Access-Control-Allow-Origin", "Access-Control-Allow-Methods", 
             "Access-Control-Allow-Headers", "Access-Control-Allow-Credentials"
         ));
@@ -4,12 +4,16 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.logging.Logger;
 
 @Component
 public class DatabaseMigrationRunner implements CommandLineRunner {
 
     private static final Logger logger = Logger.getLogger(DatabaseMigrationRunner.class.getName());
+
+    // Must match the allocationSize of the product_seq generator on Product
+    private static final int PRODUCT_SEQ_ALLOCATION = 50;
     private final JdbcTemplate jdbcTemplate;
 
     public DatabaseMigrationRunner(JdbcTemplate jdbcTemplate) {
@@ -25,6 +29,73 @@ public class DatabaseMigrationRunner implements CommandLineRunner {
         } catch (Exception e) {
             logger.severe("Database connection failed: " + e.getMessage());
             // Don't throw the error to prevent application startup failure
+            return;
+        }
+
+        migrateProductIds();
+        migrateChangeTracking();
+    }
+
+    /**
+     * Product ids used to come from an identity column and now come from product_seq.
+     * Drops the identity so explicit ids can be inserted, and moves the sequence past
+     * the highest existing id so pooled allocations never collide with old rows.
+     */
+    private void migrateProductIds() {
+        try {
+            Integer identityCols = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM user_tab_identity_cols WHERE table_name = 'PRODUCTS' AND column_name = 'ID'",
+                    Integer.class);
+            if (identityCols != null && identityCols > 0) {
+                logger.info("Dropping identity from products.id");
+                jdbcTemplate.execute("ALTER TABLE products MODIFY (id DROP IDENTITY)");
+            }
+
+            Long maxId = jdbcTemplate.queryForObject("SELECT NVL(MAX(id), 0) FROM products", Long.class);
+            Long lastNumber = jdbcTemplate.queryForObject(
+                    "SELECT last_number FROM user_sequences WHERE sequence_name = 'PRODUCT_SEQ'", Long.class);
+            if (maxId != null && lastNumber != null && lastNumber <= maxId + PRODUCT_SEQ_ALLOCATION) {
+                long restart = maxId + PRODUCT_SEQ_ALLOCATION + 1;
+                logger.info("Restarting product_seq at " + restart);
+                jdbcTemplate.execute("ALTER SEQUENCE product_seq RESTART START WITH " + restart);
+            }
+        } catch (Exception e) {
+            logger.severe("Product id migration failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Delta sync orders product writes by products.change_seq. A trigger assigns it
+     * from product_change_seq, so Hibernate's batched writes and the JDBC patch path
+     * are covered alike without reading the value back; rows that predate the
+     * column are numbered once here. The sequence is ORDER so that on RAC each
+     * instance does not hand out numbers from its own cached range, which would put
+     * one instance's writes far behind another's watermark.
+     */
+    private void migrateChangeTracking() {
+        try {
+            List<String> orderFlags = jdbcTemplate.queryForList(
+                    "SELECT order_flag FROM user_sequences WHERE sequence_name = 'PRODUCT_CHANGE_SEQ'",
+                    String.class);
+            if (orderFlags.isEmpty()) {
+                logger.info("Creating product_change_seq");
+                jdbcTemplate.execute("CREATE SEQUENCE product_change_seq START WITH 1 INCREMENT BY 1 ORDER");
+            } else if (!"Y".equals(orderFlags.get(0))) {
+                logger.info("Making product_change_seq ORDER");
+                jdbcTemplate.execute("ALTER SEQUENCE product_change_seq ORDER");
+            }
+
+            jdbcTemplate.execute("CREATE OR REPLACE TRIGGER products_change_seq_trg "
+                    + "BEFORE INSERT OR UPDATE ON products FOR EACH ROW "
+                    + "BEGIN :new.change_seq := product_change_seq.nextval; END;");
+
+            int backfilled = jdbcTemplate.update(
+                    "UPDATE products SET change_seq = product_change_seq.nextval WHERE change_seq IS NULL");
+            if (backfilled > 0) {
+                logger.info("Assigned change_seq to " + backfilled + " existing products");
+            }
+        } catch (Exception e) {
+            logger.severe("Product change tracking migration failed: " + e.getMessage());
         }
     }
 
@@ -1,8 +1,8 @@
 package org.example.product_demo.config;
 
-import org.example.product_demo.repository.RefreshTokenRepository;
-import org.example.product_demo.repository.UserRepository;
 import org.example.product_demo.service.RefreshTokenService;
+import org.example.product_demo.service.UserTokenVersions;
+import org.example.product_demo.token.RefreshTokenStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -24,10 +24,10 @@ public class JwtConfig {
     private long refreshExpiration;
 
     @Autowired
-    private RefreshTokenRepository refreshTokenRepository;
+    private RefreshTokenStore refreshTokenStore;
 
     @Autowired
-    private UserRepository userRepository;
+    private UserTokenVersions tokenVersions;
 
     @Bean
     public String jwtSecret() {
@@ -53,6 +53,6 @@ public class JwtConfig {
 
     @Bean
     public RefreshTokenService refreshTokenService() {
-        return new RefreshTokenService(refreshExpiration, refreshTokenRepository, userRepository);
+        return new RefreshTokenService(refreshExpiration, refreshTokenStore, tokenVersions);
     }
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package org.example.product_demo.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread override that sends read-only work to the primary database instead
+ * of a replica. Used for reads that must see a write that just happened, since
+ * replicas may lag behind. Has no effect when replica routing is disabled.
+ */
+public final class ReadRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY_PINNED = new ThreadLocal<>();
+
+    private ReadRouting() { }
+
+    public static boolean isPrimaryPinned() {
+        return Boolean.TRUE.equals(PRIMARY_PINNED.get());
+    }
+
+    /**
+     * Runs {@code work} with read-only transactions routed to the primary.
+     */
+    public static <T> T onPrimary(Supplier<T> work) {
+        Boolean previous = PRIMARY_PINNED.get();
+        PRIMARY_PINNED.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Pins the current thread to the primary until {@link #restore} is called
+     * with the returned value; for callers that cannot pass a {@link Supplier}.
+     */
+    public static Boolean pinPrimary() {
+        Boolean previous = PRIMARY_PINNED.get();
+        PRIMARY_PINNED.set(Boolean.TRUE);
+        return previous;
+    }
+
+    public static void restore(Boolean previous) {
+        if (previous == null) {
+            PRIMARY_PINNED.remove();
+        } else {
+            PRIMARY_PINNED.set(previous);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.product_demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Splits database traffic between the primary and read replicas when
+ * {@code datasource.replicas.enabled=true}.
+ * <p>
+ * Connections are acquired lazily, once the transaction has declared itself
+ * read-only or not: {@code @Transactional(readOnly = true)} work (including
+ * Spring Data's inherited {@code findAll}/{@code findById}) goes to a replica,
+ * everything else to the primary. A client that has just written is kept on
+ * the primary for {@code datasource.replicas.read-your-writes-window}, so it
+ * never reads back an older state than the one it wrote.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replicas.enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicaDataSourceConfig {
+
+    static final String PRIMARY_UNTIL_COOKIE = "primary_until";
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaSelectingDataSource replicaDataSource(HikariDataSource primaryDataSource,
+                                                        DataSourceProperties primaryProperties,
+                                                        ReplicaProperties replicaProperties) {
+        List<DataSource> replicas = new ArrayList<>();
+        List<ReplicaProperties.Node> nodes = replicaProperties.getNodes();
+        for (int i = 0; i < nodes.size(); i++) {
+            ReplicaProperties.Node node = nodes.get(i);
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (i + 1));
+            replica.setJdbcUrl(node.getUrl());
+            replica.setUsername(node.getUsername() != null ? node.getUsername() : primaryProperties.determineUsername());
+            replica.setPassword(node.getPassword() != null ? node.getPassword() : primaryProperties.determinePassword());
+            replica.setDriverClassName(primaryProperties.determineDriverClassName());
+            replica.setMaximumPoolSize(replicaProperties.getMaximumPoolSize());
+            replica.setConnectionTimeout(replicaProperties.getConnectionTimeout().toMillis());
+            replica.setReadOnly(true);
+            // Start even when a replica is unreachable; the health check brings it in later
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(replica);
+        }
+        return new ReplicaSelectingDataSource(primaryDataSource, replicas,
+                replicaProperties.getHealthCheckInterval(), replicaProperties.getConnectionTimeout());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaSelectingDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy routing = new LazyConnectionDataSourceProxy(primaryDataSource);
+        routing.setReadOnlyDataSource(replicaDataSource);
+        return routing;
+    }
+
+    @Bean
+    public OncePerRequestFilter readYourWritesFilter(ReplicaProperties replicaProperties) {
+        long windowMillis = replicaProperties.getReadYourWritesWindow().toMillis();
+        return new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request,
+                                            HttpServletResponse response,
+                                            FilterChain filterChain)
+                    throws ServletException, IOException {
+
+                boolean writing = !SAFE_METHODS.contains(request.getMethod());
+                if (writing) {
+                    // A cookie rather than server state, so it holds whichever node serves the next read
+                    Cookie cookie = new Cookie(PRIMARY_UNTIL_COOKIE,
+                            Long.toString(System.currentTimeMillis() + windowMillis));
+                    cookie.setPath("/");
+                    cookie.setHttpOnly(true);
+                    cookie.setMaxAge((int) Math.max(1, (windowMillis + 999) / 1000));
+                    response.addCookie(cookie);
+                }
+
+                if (!writing && !wroteRecently(request)) {
+                    filterChain.doFilter(request, response);
+                    return;
+                }
+
+                Boolean previous = ReadRouting.pinPrimary();
+                try {
+                    filterChain.doFilter(request, response);
+                } finally {
+                    ReadRouting.restore(previous);
+                }
+            }
+        };
+    }
+
+    private static boolean wroteRecently(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (PRIMARY_UNTIL_COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue()) > System.currentTimeMillis();
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
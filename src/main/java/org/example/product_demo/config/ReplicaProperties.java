@@ -0,0 +1,55 @@
+package org.example.product_demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas for {@link ReplicaDataSourceConfig}, bound from
+ * {@code datasource.replicas.*}.
+ */
+@ConfigurationProperties(prefix = "datasource.replicas")
+public class ReplicaProperties {
+
+    public static class Node {
+        private String url;
+        private String username;
+        private String password;
+
+        public String getUrl() { return url; }
+        public void setUrl(String url) { this.url = url; }
+
+        public String getUsername() { return username; }
+        public void setUsername(String username) { this.username = username; }
+
+        public String getPassword() { return password; }
+        public void setPassword(String password) { this.password = password; }
+    }
+
+    private boolean enabled;
+    private List<Node> nodes = new ArrayList<>();
+    private int maximumPoolSize = 10;
+    private Duration connectionTimeout = Duration.ofSeconds(2);
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public List<Node> getNodes() { return nodes; }
+    public void setNodes(List<Node> nodes) { this.nodes = nodes; }
+
+    public int getMaximumPoolSize() { return maximumPoolSize; }
+    public void setMaximumPoolSize(int maximumPoolSize) { this.maximumPoolSize = maximumPoolSize; }
+
+    public Duration getConnectionTimeout() { return connectionTimeout; }
+    public void setConnectionTimeout(Duration connectionTimeout) { this.connectionTimeout = connectionTimeout; }
+
+    public Duration getHealthCheckInterval() { return healthCheckInterval; }
+    public void setHealthCheckInterval(Duration healthCheckInterval) { this.healthCheckInterval = healthCheckInterval; }
+
+    public Duration getReadYourWritesWindow() { return readYourWritesWindow; }
+    public void setReadYourWritesWindow(Duration readYourWritesWindow) { this.readYourWritesWindow = readYourWritesWindow; }
+}
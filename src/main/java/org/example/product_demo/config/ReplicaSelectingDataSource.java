@@ -0,0 +1,129 @@
+package org.example.product_demo.config;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Hands out connections to read replicas in round-robin order, skipping any
+ * replica that failed its last health check or a connection attempt, and falls
+ * back to the primary when none is available or the thread is pinned to it
+ * through {@link ReadRouting}.
+ * <p>
+ * A background check validates every replica each {@code healthCheckInterval},
+ * which is also how a replica that went down comes back into rotation.
+ */
+public class ReplicaSelectingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(ReplicaSelectingDataSource.class.getName());
+
+    private static final class Replica {
+        final String name;
+        final DataSource dataSource;
+        volatile boolean healthy = true;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final int validationTimeoutSeconds;
+
+    private final ScheduledExecutorService healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replica-health");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ReplicaSelectingDataSource(DataSource primary, List<DataSource> replicas,
+                                      Duration healthCheckInterval, Duration validationTimeout) {
+        this.primary = primary;
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas.add(new Replica("replica-" + (i + 1), replicas.get(i)));
+        }
+        this.validationTimeoutSeconds = (int) Math.max(1, validationTimeout.toSeconds());
+
+        long interval = healthCheckInterval.toMillis();
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!ReadRouting.isPrimaryPinned() && !replicas.isEmpty()) {
+            int count = replicas.size();
+            int start = Math.floorMod(next.getAndIncrement(), count);
+            for (int i = 0; i < count; i++) {
+                Replica replica = replicas.get((start + i) % count);
+                if (!replica.healthy) {
+                    continue;
+                }
+                try {
+                    return replica.dataSource.getConnection();
+                } catch (SQLException e) {
+                    markDown(replica, e.getMessage());
+                }
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replica connections use the configured credentials");
+    }
+
+    /**
+     * Validates every replica and updates its availability.
+     */
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            String failure = null;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (!connection.isValid(validationTimeoutSeconds)) {
+                    failure = "connection not valid";
+                }
+            } catch (SQLException e) {
+                failure = e.getMessage();
+            }
+
+            if (failure != null) {
+                markDown(replica, failure);
+            } else if (!replica.healthy) {
+                replica.healthy = true;
+                logger.info("Read replica " + replica.name + " is back in rotation");
+            }
+        }
+    }
+
+    private void markDown(Replica replica, String reason) {
+        if (replica.healthy) {
+            replica.healthy = false;
+            logger.warning("Read replica " + replica.name + " taken out of rotation: " + reason);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        healthChecker.shutdownNow();
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
@@ -26,7 +26,12 @@ public class SecurityHeadersConfig {
                 response.setHeader("X-XSS-Protection", "1; mode=block");
                 response.setHeader("X-Content-Type-Options", "nosniff");
                 response.setHeader("X-Frame-Options", "DENY");
-                response.setHeader("Cache-Control", "no-store, no-cache, must-revalidate, max-age=0");
+                // Product reads carry ETags, so clients may keep a copy as long as they revalidate it
+                if ("GET".equals(request.getMethod()) && request.getRequestURI().startsWith("/api/products")) {
+                    response.setHeader("Cache-Control", "no-cache");
+                } else {
+                    response.setHeader("Cache-Control", "no-store, no-cache, must-revalidate, max-age=0");
+                }
                 response.setHeader("Pragma", "no-cache");
                 response.setHeader("Expires", "0");
 
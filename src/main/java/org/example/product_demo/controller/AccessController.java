@@ -1,8 +1,10 @@
 package org.example.product_demo.controller;
 
+import io.jsonwebtoken.Claims;
 import org.example.product_demo.model.User;
 import org.example.product_demo.security.JwtUtils;
 import org.example.product_demo.service.UserService;
+import org.example.product_demo.token.AccessTokenRevocations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -19,11 +21,13 @@ public class AccessController {
 
     private final JwtUtils jwtUtils;
     private final UserService userService;
+    private final AccessTokenRevocations revocations;
 
     @Autowired
-    public AccessController(JwtUtils jwtUtils, UserService userService) {
+    public AccessController(JwtUtils jwtUtils, UserService userService, AccessTokenRevocations revocations) {
         this.jwtUtils = jwtUtils;
         this.userService = userService;
+        this.revocations = revocations;
     }
 
     @GetMapping("/current-user")
@@ -33,7 +37,12 @@ public class AccessController {
         if (authentication != null && authentication.isAuthenticated() &&
                 authentication.getPrincipal() instanceof User) {
 
-            User user = (User) authentication.getPrincipal();
+            // The principal only holds what the token carries; read the rest from the database
+            User principal = (User) authentication.getPrincipal();
+            User user = userService.findById(principal.getId()).orElse(null);
+            if (user == null) {
+                return ResponseEntity.ok(Map.of("message", "No authenticated user found"));
+            }
 
             Map<String, Object> response = new HashMap<>();
             response.put("id", user.getId());
@@ -69,18 +78,17 @@ public class AccessController {
             return ResponseEntity.badRequest().body(Map.of("valid", false, "error", "Token is required"));
         }
 
-        boolean isValid = jwtUtils.validateToken(token);
+        Claims claims = jwtUtils.getValidatedClaims(token);
+        if (claims != null && revocations.isRevoked(claims.getId())) {
+            claims = null;
+        }
         Map<String, Object> response = new HashMap<>();
-        response.put("valid", isValid);
-
-        if (isValid) {
-            String username = jwtUtils.extractUsername(token);
-            Long userId = jwtUtils.getUserIdFromToken(token);
-            String role = jwtUtils.getUserRoleFromToken(token);
+        response.put("valid", claims != null);
 
-            response.put("username", username);
-            response.put("userId", userId);
-            response.put("role", role);
+        if (claims != null) {
+            response.put("username", claims.getSubject());
+            response.put("userId", JwtUtils.getUserId(claims));
+            response.put("role", JwtUtils.getUserRole(claims));
         }
 
         return ResponseEntity.ok(response);
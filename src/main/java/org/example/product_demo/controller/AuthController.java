@@ -1,25 +1,30 @@
 package org.example.product_demo.controller;
 
+import io.jsonwebtoken.Claims;
 import org.example.product_demo.exception.ApiException;
 import org.example.product_demo.exception.UserAlreadyExistsException;
-import org.example.product_demo.model.RefreshToken;
 import org.example.product_demo.model.User;
 import org.example.product_demo.security.JwtUtils;
+import org.example.product_demo.service.IdempotencyService;
+import org.example.product_demo.service.PasswordHashingExecutor;
 import org.example.product_demo.service.RefreshTokenService;
 import org.example.product_demo.service.UserService;
+import org.example.product_demo.token.AccessTokenRevocations;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Logger;
 
 @RestController
@@ -28,113 +33,142 @@ import java.util.logging.Logger;
 public class AuthController {
 
     private static final Logger logger = Logger.getLogger(AuthController.class.getName());
-    private final AuthenticationManager authenticationManager;
     private final UserService userService;
     private final JwtUtils jwtUtils;
     private final RefreshTokenService refreshTokenService;
+    private final IdempotencyService idempotency;
+    private final PasswordHashingExecutor passwordHashing;
+    private final AccessTokenRevocations revocations;
+    private final Executor ioExecutor;
 
     @Autowired
-    public AuthController(AuthenticationManager authenticationManager,
-                          UserService userService,
+    public AuthController(UserService userService,
                           JwtUtils jwtUtils,
-                          RefreshTokenService refreshTokenService) {
-        this.authenticationManager = authenticationManager;
+                          RefreshTokenService refreshTokenService,
+                          IdempotencyService idempotency,
+                          PasswordHashingExecutor passwordHashing,
+                          AccessTokenRevocations revocations,
+                          @Qualifier("applicationTaskExecutor") Executor ioExecutor) {
         this.userService = userService;
         this.jwtUtils = jwtUtils;
         this.refreshTokenService = refreshTokenService;
+        this.idempotency = idempotency;
+        this.passwordHashing = passwordHashing;
+        this.revocations = revocations;
+        this.ioExecutor = ioExecutor;
     }
 
     // Rest of the controller methods unchanged...
     // Only the @CrossOrigin annotation was updated
     
+    // Only the password check runs on the hashing pool; the user lookup happens here and the token
+    // writes on the application task executor, so database waits never hold a hashing thread
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest) {
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody LoginRequest loginRequest) {
         logger.info("Login attempt for user: " + loginRequest.getUsername());
 
         try {
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            loginRequest.getUsername(),
-                            loginRequest.getPassword()
-                    )
-            );
-
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-            UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-            User user = (User) userDetails;
-
-            // Generate JWT token
-            String jwt = jwtUtils.generateToken(authentication);
-
-            // Create refresh token
-            RefreshToken refreshToken = refreshTokenService.createRefreshToken(user);
-
-            logger.info("Login successful for user: " + loginRequest.getUsername());
-
-            // Create response with tokens
-            Map<String, Object> response = new HashMap<>();
-            response.put("message", "Login successful");
-            response.put("userId", user.getId());
-            response.put("username", loginRequest.getUsername());
-            response.put("email", user.getEmail());
-            response.put("token", jwt);
-            response.put("refreshToken", refreshToken.getToken());
-            response.put("role", user.getRole().name());
-
-            return ResponseEntity.ok(response);
-        } catch (BadCredentialsException e) {
-            logger.warning("Bad credentials for user: " + loginRequest.getUsername());
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                    .body(Map.of("error", "Invalid username or password"));
+            User user = userService.findByUsername(loginRequest.getUsername()).orElse(null);
+            if (user != null && !user.isEnabled()) {
+                return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                        .body(Map.of("error", "User account is disabled")));
+            }
+            return passwordHashing.submit(() -> userService.passwordMatches(user, loginRequest.getPassword()))
+                    .<ResponseEntity<?>>thenApplyAsync(matches -> matches
+                            ? issueLoginTokens(user)
+                            : badCredentials(loginRequest.getUsername()), ioExecutor)
+                    .exceptionally(e -> unexpectedError("login", e));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(hashingBusy());
         } catch (Exception e) {
-            logger.severe("Unexpected error during login: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "An unexpected error occurred: " + e.getMessage()));
+            return CompletableFuture.completedFuture(unexpectedError("login", e));
         }
     }
 
+    private ResponseEntity<?> issueLoginTokens(User user) {
+        // No SecurityContextHolder here: this runs on a pooled thread, and tokens carry the authentication
+        String jwt = jwtUtils.generateToken(user);
+        String refreshToken = refreshTokenService.createRefreshToken(user);
+
+        logger.info("Login successful for user: " + user.getUsername());
+
+        // Create response with tokens
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Login successful");
+        response.put("userId", user.getId());
+        response.put("username", user.getUsername());
+        response.put("email", user.getEmail());
+        response.put("token", jwt);
+        response.put("refreshToken", refreshToken);
+        response.put("role", user.getRole().name());
+
+        return ResponseEntity.ok(response);
+    }
+
+    private static ResponseEntity<?> badCredentials(String username) {
+        logger.warning("Bad credentials for user: " + username);
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(Map.of("error", "Invalid username or password"));
+    }
+
     @PostMapping("/register")
-    public ResponseEntity<?> register(@RequestBody User user) {
-        try {
-            // Make sure to set email to a default value if not provided
-            if (user.getEmail() == null) {
-                user.setEmail("");
+    public CompletableFuture<ResponseEntity<?>> register(@RequestBody User user,
+                                                         @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotency.executeAsync("register", idempotencyKey, user, () -> {
+            try {
+                // Make sure to set email to a default value if not provided
+                if (user.getEmail() == null) {
+                    user.setEmail("");
+                }
+                userService.checkAvailable(user);
+
+                // Hashing the password is the only BCrypt work; the insert and token write follow off the pool
+                return passwordHashing.submit(() -> userService.encodePassword(user.getPassword()))
+                        .<ResponseEntity<?>>thenApplyAsync(
+                                encodedPassword -> registerAndIssueTokens(user, encodedPassword), ioExecutor)
+                        .exceptionally(e -> unexpectedError("registration", e));
+            } catch (RejectedExecutionException e) {
+                return CompletableFuture.completedFuture(hashingBusy());
+            } catch (UserAlreadyExistsException e) {
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(Map.of("error", e.getMessage())));
+            } catch (Exception e) {
+                return CompletableFuture.completedFuture(unexpectedError("registration", e));
             }
+        });
+    }
 
-            // Register the user
-            User registeredUser = userService.registerNewUser(user);
-
-            // Authenticate the new user
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            user.getUsername(),
-                            user.getPassword() // This is the raw password before it was encrypted
-                    )
-            );
-
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-
-            // Generate tokens
-            String jwt = jwtUtils.generateToken(authentication);
-            RefreshToken refreshToken = refreshTokenService.createRefreshToken(registeredUser);
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("message", "User registered successfully");
-            response.put("userId", registeredUser.getId());
-            response.put("username", registeredUser.getUsername());
-            response.put("email", registeredUser.getEmail());
-            response.put("token", jwt);
-            response.put("refreshToken", refreshToken.getToken());
-            response.put("role", registeredUser.getRole().name());
-
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
-        } catch (UserAlreadyExistsException e) {
-            return ResponseEntity.badRequest()
-                    .body(Map.of("error", e.getMessage()));
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "An unexpected error occurred: " + e.getMessage()));
-        }
+    private ResponseEntity<?> registerAndIssueTokens(User user, String encodedPassword) {
+        User registeredUser = userService.registerNewUser(user, encodedPassword);
+
+        // Issue tokens for the user just created; authenticating again would hash a second time
+        String jwt = jwtUtils.generateToken(registeredUser);
+        String refreshToken = refreshTokenService.createRefreshToken(registeredUser);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "User registered successfully");
+        response.put("userId", registeredUser.getId());
+        response.put("username", registeredUser.getUsername());
+        response.put("email", registeredUser.getEmail());
+        response.put("token", jwt);
+        response.put("refreshToken", refreshToken);
+        response.put("role", registeredUser.getRole().name());
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    private static ResponseEntity<?> unexpectedError(String operation, Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        logger.severe("Unexpected error during " + operation + ": " + cause.getMessage());
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "An unexpected error occurred: " + cause.getMessage()));
+    }
+
+    // Fast refusal rather than queueing more CPU work than the pool can finish
+    private static ResponseEntity<?> hashingBusy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", "Too many sign-in requests, please retry shortly"));
     }
 
     @PostMapping("/refresh-token")
@@ -146,19 +180,13 @@ public class AuthController {
         }
 
         try {
-            return refreshTokenService.findByToken(requestRefreshToken)
-                    .map(refreshTokenService::verifyExpiration)
-                    .map(RefreshToken::getUser)
-                    .map(user -> {
-                        String token = jwtUtils.generateToken(user);
-
-                        return ResponseEntity.ok(Map.of(
-                                "token", token,
-                                "refreshToken", requestRefreshToken
-                        ));
-                    })
-                    .orElseThrow(() -> new ApiException("Refresh token not found in database!",
-                            HttpStatus.UNAUTHORIZED));
+            User user = refreshTokenService.verify(requestRefreshToken).toUser();
+            String token = jwtUtils.generateToken(user);
+
+            return ResponseEntity.ok(Map.of(
+                    "token", token,
+                    "refreshToken", requestRefreshToken
+            ));
         } catch (ApiException e) {
             return ResponseEntity.status(e.getStatus())
                     .body(Map.of("error", e.getMessage()));
@@ -169,12 +197,20 @@ public class AuthController {
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<?> logoutUser() {
+    public ResponseEntity<?> logoutUser(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication != null && authentication.getPrincipal() instanceof User) {
             User user = (User) authentication.getPrincipal();
             refreshTokenService.deleteByUserId(user.getId());
 
+            // End the access token now rather than at its expiry
+            if (authorization != null && authorization.startsWith("Bearer ")) {
+                Claims claims = jwtUtils.getValidatedClaims(authorization.substring(7));
+                if (claims != null) {
+                    revocations.revoke(claims.getId(), claims.getExpiration().toInstant());
+                }
+            }
+
             return ResponseEntity.ok(Map.of("message", "Logout successful"));
         }
 
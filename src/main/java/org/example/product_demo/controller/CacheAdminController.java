@@ -0,0 +1,32 @@
+package org.example.product_demo.controller;
+
+import org.example.product_demo.service.ProductCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/cache")
+@CrossOrigin(origins = {"https://master.d2ji8l5dbhz3ww.amplifyapp.com", "http://localhost:3000"})
+@PreAuthorize("hasRole('ADMIN')")
+public class CacheAdminController {
+
+    private final ProductCache productCache;
+
+    public CacheAdminController(ProductCache productCache) {
+        this.productCache = productCache;
+    }
+
+    @GetMapping("/products")
+    public ResponseEntity<Map<String, Object>> productCacheStats() {
+        return ResponseEntity.ok(productCache.stats());
+    }
+
+    @DeleteMapping("/products")
+    public ResponseEntity<?> clearProductCache() {
+        productCache.invalidateAll();
+        return ResponseEntity.ok(Map.of("message", "Product cache cleared"));
+    }
+}
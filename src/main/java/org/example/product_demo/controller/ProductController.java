@@ -1,12 +1,42 @@
 package org.example.product_demo.controller;
 
+import org.example.product_demo.exception.ApiException;
+import org.example.product_demo.json.ProductList;
 import org.example.product_demo.model.Product;
+import org.example.product_demo.model.ProductSummary;
 import org.example.product_demo.repository.ProductRepository;
+import org.example.product_demo.search.ProductSearchIndex;
+import org.example.product_demo.search.ProductSearchIndex.SearchResult;
+import org.example.product_demo.service.ProductBulkResult;
+import org.example.product_demo.service.CatalogSnapshot;
+import org.example.product_demo.service.CatalogVersion;
+import org.example.product_demo.service.CatalogSnapshot.Snapshot;
+import org.example.product_demo.service.IdempotencyService;
+import org.example.product_demo.service.ProductCache;
+import org.example.product_demo.service.ProductChangeEvent;
+import org.example.product_demo.service.ProductEventStream;
+import org.example.product_demo.service.ProductLookup;
+import org.example.product_demo.service.ProductPage;
+import org.example.product_demo.service.ProductService;
+import org.example.product_demo.service.ProductStats;
+import org.example.product_demo.service.ProductView;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/products")
@@ -14,42 +44,377 @@ import java.util.List;
 public class ProductController {
 
     private final ProductRepository repo;
+    private final ProductService productService;
+    private final ProductCache productCache;
+    private final ProductSearchIndex searchIndex;
+    private final CatalogSnapshot catalogSnapshot;
+    private final CatalogVersion catalogVersion;
+    private final IdempotencyService idempotency;
+    private final ProductEventStream eventStream;
+    private final ProductStats productStats;
+    private final ApplicationEventPublisher events;
 
-    public ProductController(ProductRepository repo) {
+    public ProductController(ProductRepository repo,
+                             ProductService productService,
+                             ProductCache productCache,
+                             ProductSearchIndex searchIndex,
+                             CatalogSnapshot catalogSnapshot,
+                             CatalogVersion catalogVersion,
+                             IdempotencyService idempotency,
+                             ProductEventStream eventStream,
+                             ProductStats productStats,
+                             ApplicationEventPublisher events) {
         this.repo = repo;
+        this.productService = productService;
+        this.productCache = productCache;
+        this.searchIndex = searchIndex;
+        this.catalogSnapshot = catalogSnapshot;
+        this.catalogVersion = catalogVersion;
+        this.idempotency = idempotency;
+        this.eventStream = eventStream;
+        this.productStats = productStats;
+        this.events = events;
     }
 
     @GetMapping
-    public List<Product> getAll() {
-        return repo.findAll();
+    public ResponseEntity<?> getAll(@RequestParam(required = false) String sort,
+                                    @RequestParam(required = false) String direction,
+                                    @RequestParam(required = false) String cursor,
+                                    @RequestParam(required = false) Integer limit,
+                                    @RequestParam(required = false) String view,
+                                    @RequestParam(required = false) String ids,
+                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        ProductView productView;
+        try {
+            productView = ProductView.from(view);
+        } catch (ApiException e) {
+            return ResponseEntity.status(e.getStatus())
+                    .body(Map.of("error", e.getMessage()));
+        }
+
+        if (ids != null) {
+            return lookup(parseIds(ids), productView);
+        }
+
+        // Without paging parameters keep the original full listing for existing clients
+        if (sort == null && cursor == null && limit == null) {
+            // Taken before the read, so a concurrent write can only make the ETag older than the body
+            String etag = ProductEtags.forCatalog(catalogVersion.current());
+            if (ProductEtags.matches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            return ResponseEntity.ok().eTag(etag)
+                    .body(productView == ProductView.SUMMARY ? repo.findAllSummaries() : ProductList.of(repo.findAll()));
+        }
+        return getPage(sort, direction, cursor, limit, productView, ifNoneMatch);
+    }
+
+    // A page is tagged by its own rows: reading one is cheap, and writes elsewhere leave its ETag alone
+    private ResponseEntity<?> getPage(String sort, String direction, String cursor, Integer limit,
+                                      ProductView view, String ifNoneMatch) {
+        try {
+            ProductPage page = productService.findPage(sort, direction, cursor, limit, view);
+            String etag = ProductEtags.forPage(page);
+            if (ProductEtags.matches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("items", page.getItems());
+            response.put("size", page.getSize());
+            response.put("nextCursor", page.getNextCursor());
+            return ResponseEntity.ok().eTag(etag).body(response);
+        } catch (ApiException e) {
+            return ResponseEntity.status(e.getStatus())
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Same as GET ?ids= for id lists too long for a query string
+    @PostMapping("/lookup")
+    public ResponseEntity<?> lookup(@RequestBody LookupRequest request,
+                                    @RequestParam(required = false) String view) {
+        try {
+            return lookup(request.getIds() == null ? List.of() : request.getIds(), ProductView.from(view));
+        } catch (ApiException e) {
+            return ResponseEntity.status(e.getStatus())
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<?> lookup(List<Long> ids, ProductView view) {
+        if (ids == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "ids must be a comma-separated list of numbers"));
+        }
+        try {
+            ProductLookup result = productService.findByIds(ids, view);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("items", result.getItems());
+            response.put("missing", result.getMissing());
+            return ResponseEntity.ok(response);
+        } catch (ApiException e) {
+            return ResponseEntity.status(e.getStatus())
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Null when the list is malformed
+    private static List<Long> parseIds(String ids) {
+        List<Long> parsed = new ArrayList<>();
+        for (String id : ids.split(",")) {
+            if (id.isBlank()) {
+                continue;
+            }
+            try {
+                parsed.add(Long.valueOf(id.trim()));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return parsed;
+    }
+
+    // Full catalog from the pre-serialized, pre-compressed snapshot; may trail the latest write briefly
+    @GetMapping("/snapshot")
+    public ResponseEntity<?> snapshot(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Snapshot snapshot = catalogSnapshot.current();
+        if (snapshot == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("error", "Catalog snapshot is not built yet"));
+        }
+
+        // Each encoding is a distinct representation, so each gets its own strong ETag
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String etag = "\"s" + snapshot.getHash() + (gzip ? "-gz" : "") + "\"";
+        if (ProductEtags.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        byte[] body = gzip ? snapshot.getGzip() : snapshot.getJson();
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(body.length)
+                .body(body);
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (!parts[0].trim().equalsIgnoreCase("gzip")) {
+                continue;
+            }
+            // "gzip;q=0" explicitly refuses the coding
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // Full catalog as newline-delimited JSON, streamed row by row for feed jobs
+    @GetMapping("/export")
+    public void export(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        productService.exportNdjson(response.getOutputStream());
+    }
+
+    // Catalog-wide price statistics, maintained in memory
+    @GetMapping("/stats")
+    public ResponseEntity<?> stats() {
+        Map<String, Object> stats = productStats.snapshot();
+        if (stats == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("error", "Product statistics are not built yet"));
+        }
+        return ResponseEntity.ok(stats);
+    }
+
+    // Delta sync: what was written or deleted after the watermark a client last saw
+    @GetMapping("/changes")
+    public ResponseEntity<?> changes(@RequestParam(defaultValue = "0") long since,
+                                     @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(productService.findChanges(since, limit));
+        } catch (ApiException e) {
+            return ResponseEntity.status(e.getStatus())
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Live create/update/delete feed; reconnecting clients resume from Last-Event-ID
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return eventStream.subscribe(lastEventId);
+    }
+
+    // Ranked full-text search over name and description, served from the in-memory index
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam String q,
+                                    @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > ProductSearchIndex.MAX_RESULTS) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "limit must be between 1 and " + ProductSearchIndex.MAX_RESULTS));
+        }
+
+        SearchResult result = searchIndex.search(q, limit);
+        Map<String, Object> response = new HashMap<>();
+        response.put("query", q);
+        response.put("total", result.getTotal());
+        response.put("items", result.getItems());
+        return ResponseEntity.ok(response);
     }
 
     @GetMapping("/{id}")
-    public Product getOne(@PathVariable Long id) {
-        return repo.findById(id)
+    public ResponseEntity<?> getOne(@PathVariable Long id,
+                                    @RequestParam(required = false) String view,
+                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        ProductView productView;
+        try {
+            productView = ProductView.from(view);
+        } catch (ApiException e) {
+            return ResponseEntity.status(e.getStatus())
+                    .body(Map.of("error", e.getMessage()));
+        }
+
+        // Revalidation only needs the version: answer from the cache or a single-column query
+        if (ifNoneMatch != null) {
+            Long version = productCache.peek(id)
+                    .map(Product::getVersion)
+                    .orElseGet(() -> repo.findVersionById(id).orElse(null));
+            if (version != null && ProductEtags.matches(ifNoneMatch, ProductEtags.forProduct(id, version))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(ProductEtags.forProduct(id, version))
+                        .build();
+            }
+        }
+
+        Product product = productCache.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found"));
+        return ResponseEntity.ok()
+                .eTag(ProductEtags.forProduct(product.getId(), product.getVersion()))
+                .body(productView == ProductView.SUMMARY ? ProductSummary.of(product) : product);
     }
 
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
-    public Product create(@RequestBody Product product) {
-        return repo.save(product);
+    public ResponseEntity<?> create(@RequestBody Product product,
+                                    @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotency.execute("products", idempotencyKey, product, () -> {
+            Product saved = repo.save(product);
+            events.publishEvent(ProductChangeEvent.created(saved));
+            return ResponseEntity.status(HttpStatus.CREATED).body(saved);
+        });
+    }
+
+    // Bulk create/update from a JSON array or NDJSON body, applied in batched chunks
+    @PostMapping(value = "/bulk", consumes = {"application/json", "application/x-ndjson"})
+    public ResponseEntity<ProductBulkResult> bulkUpsert(HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(productService.bulkUpsert(request.getInputStream()));
     }
 
     @PutMapping("/{id}")
-    public Product update(@PathVariable Long id, @RequestBody Product product) {
+    public ResponseEntity<?> update(@PathVariable Long id,
+                                    @RequestBody Product product,
+                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expectedVersion = null;
+        if (ifMatch != null) {
+            try {
+                expectedVersion = ProductEtags.versionFromIfMatch(ifMatch, id);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                        .body(Map.of("error", e.getMessage()));
+            }
+        }
+
         Product existing = repo.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found"));
+        if (expectedVersion != null && !expectedVersion.equals(existing.getVersion())) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .body(Map.of("error", "Product was modified by another request"));
+        }
         existing.setName(product.getName());
         existing.setDescription(product.getDescription());
         existing.setPrice(product.getPrice());
         existing.setImageUrl(product.getImageUrl());
-        return repo.save(existing);
+        // A write landing between the read and this save fails the version check with an optimistic lock error
+        Product saved = repo.save(existing);
+        events.publishEvent(ProductChangeEvent.updated(saved));
+        return ResponseEntity.ok()
+                .eTag(ProductEtags.forProduct(saved.getId(), saved.getVersion()))
+                .body(saved);
+    }
+
+    // Partial update: only the supplied properties are written, in a single UPDATE
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> patch(@PathVariable Long id,
+                                   @RequestBody Map<String, Object> changes,
+                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expectedVersion = null;
+        if (ifMatch != null) {
+            try {
+                expectedVersion = ProductEtags.versionFromIfMatch(ifMatch, id);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                        .body(Map.of("error", e.getMessage()));
+            }
+        }
+
+        try {
+            Product product = productService.patch(id, changes, expectedVersion);
+            return ResponseEntity.ok()
+                    .eTag(ProductEtags.forProduct(product.getId(), product.getVersion()))
+                    .body(product);
+        } catch (ApiException e) {
+            return ResponseEntity.status(e.getStatus())
+                    .body(Map.of("error", e.getMessage()));
+        }
     }
 
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void delete(@PathVariable Long id) {
-        repo.deleteById(id);
+        productService.delete(id);
+    }
+
+    // Lost a race with a concurrent write: a precondition failure when the client sent If-Match, else a conflict
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleOptimisticLockFailure(HttpServletRequest request) {
+        HttpStatus status = request.getHeader(HttpHeaders.IF_MATCH) != null
+                ? HttpStatus.PRECONDITION_FAILED
+                : HttpStatus.CONFLICT;
+        return ResponseEntity.status(status)
+                .body(Map.of("error", "Product was modified by another request"));
+    }
+
+    public static class LookupRequest {
+        private List<Long> ids;
+
+        public List<Long> getIds() { return ids; }
+        public void setIds(List<Long> ids) { this.ids = ids; }
     }
-}
\ No newline at end of file
+}
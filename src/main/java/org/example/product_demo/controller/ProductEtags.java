@@ -0,0 +1,97 @@
+package org.example.product_demo.controller;
+
+import org.example.product_demo.model.Product;
+import org.example.product_demo.model.ProductSummary;
+import org.example.product_demo.service.ProductPage;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Strong ETags for product responses, derived from row versions and the catalog
+ * version rather than from serialized bodies.
+ */
+final class ProductEtags {
+
+    private ProductEtags() { }
+
+    static String forProduct(Long id, long version) {
+        return "\"p" + id + "-" + version + "\"";
+    }
+
+    static String forCatalog(String catalogVersion) {
+        return "\"c" + catalogVersion + "\"";
+    }
+
+    /**
+     * ETag of one page, from the rows on it and the cursor to the next, so it
+     * changes only when that page does. Summaries carry no version and are
+     * tagged by their fields.
+     */
+    static String forPage(ProductPage page) {
+        StringBuilder key = new StringBuilder();
+        for (Object item : page.getItems()) {
+            if (item instanceof Product product) {
+                key.append(product.getId()).append(':').append(product.getVersion());
+            } else if (item instanceof ProductSummary summary) {
+                key.append(summary.getId()).append(':').append(summary.getName())
+                        .append(':').append(summary.getPrice()).append(':').append(summary.getImageUrl());
+            }
+            key.append('\n');
+        }
+        key.append(page.getNextCursor());
+        return "\"g" + HexFormat.of().formatHex(sha256(key.toString()), 0, 12) + "\"";
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Extracts the version from an {@code If-Match} header holding a product ETag.
+     * Returns {@code null} for {@code *}, which matches any current version.
+     *
+     * @throws IllegalArgumentException if the header is not an ETag for this product
+     */
+    static Long versionFromIfMatch(String ifMatch, Long id) {
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) {
+            return null;
+        }
+        String prefix = "\"p" + id + "-";
+        if (!tag.startsWith(prefix) || !tag.endsWith("\"")) {
+            throw new IllegalArgumentException("ETag does not belong to product " + id);
+        }
+        return Long.valueOf(tag.substring(prefix.length(), tag.length() - 1));
+    }
+
+    /**
+     * Evaluates an {@code If-None-Match} header against {@code etag}. Uses weak
+     * comparison as RFC 9110 requires for this header, so a {@code W/} prefix on
+     * the client's copy is ignored.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
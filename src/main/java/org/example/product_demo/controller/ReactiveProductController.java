@@ -0,0 +1,111 @@
+package org.example.product_demo.controller;
+
+import org.example.product_demo.model.Product;
+import org.example.product_demo.repository.ProductRepository;
+import org.example.product_demo.search.ProductSearchIndex;
+import org.example.product_demo.service.ProductCache;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Reactive variants of the catalog reads, served next to {@link ProductController}.
+ * <p>
+ * Requests are handled asynchronously: the servlet thread is released as soon as
+ * the publisher is returned. Anything answered from memory (cached products, the
+ * search index) completes without changing threads; database work runs on
+ * Reactor's bounded elastic scheduler, so the number of threads blocked on JDBC
+ * stays fixed however many clients are waiting. The listing is streamed as
+ * NDJSON and fetched a keyset page at a time, and the next page is only read
+ * once the client has consumed the previous one.
+ */
+@RestController
+@RequestMapping("/api/products/rx")
+@CrossOrigin(origins = {"https://master.d2ji8l5dbhz3ww.amplifyapp.com", "http://localhost:3000"})
+public class ReactiveProductController {
+
+    // Rows per keyset query while streaming the listing
+    private static final int STREAM_PAGE_SIZE = 200;
+
+    private final ProductRepository repo;
+    private final ProductCache productCache;
+    private final ProductSearchIndex searchIndex;
+
+    public ReactiveProductController(ProductRepository repo,
+                                     ProductCache productCache,
+                                     ProductSearchIndex searchIndex) {
+        this.repo = repo;
+        this.productCache = productCache;
+        this.searchIndex = searchIndex;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Product> list() {
+        // One page per demand signal; the state is the last id emitted
+        return Flux.<List<Product>, Long>generate(() -> Long.MIN_VALUE, (lastId, sink) -> {
+                    List<Product> page = repo.findPageAfterId(lastId, Limit.of(STREAM_PAGE_SIZE));
+                    if (page.isEmpty()) {
+                        sink.complete();
+                        return lastId;
+                    }
+                    sink.next(page);
+                    if (page.size() < STREAM_PAGE_SIZE) {
+                        sink.complete();
+                    }
+                    return page.get(page.size() - 1).getId();
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapIterable(Function.identity(), 1);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<?>> getOne(@PathVariable Long id,
+                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Mono<Product> product = productCache.peek(id)
+                .map(Mono::just)
+                .orElseGet(() -> Mono.fromCallable(() -> productCache.findById(id).orElse(null))
+                        .subscribeOn(Schedulers.boundedElastic()));
+
+        return product
+                .<ResponseEntity<?>>map(p -> {
+                    String etag = ProductEtags.forProduct(p.getId(), p.getVersion());
+                    if (ProductEtags.matches(ifNoneMatch, etag)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+                    }
+                    return ResponseEntity.ok().eTag(etag).body(p);
+                })
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Product not found")));
+    }
+
+    @GetMapping("/search")
+    public Mono<ResponseEntity<?>> search(@RequestParam String q,
+                                          @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > ProductSearchIndex.MAX_RESULTS) {
+            return Mono.just(ResponseEntity.badRequest()
+                    .body(Map.of("error", "limit must be between 1 and " + ProductSearchIndex.MAX_RESULTS)));
+        }
+
+        // Ranking is in memory, but hits missing from the product cache are loaded from the database
+        return Mono.fromCallable(() -> searchIndex.search(q, limit))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(result -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("query", q);
+                    response.put("total", result.getTotal());
+                    response.put("items", result.getItems());
+                    return ResponseEntity.ok(response);
+                });
+    }
+}
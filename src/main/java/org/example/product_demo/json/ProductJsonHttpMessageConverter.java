@@ -0,0 +1,47 @@
+package org.example.product_demo.json;
+
+import org.example.product_demo.model.Product;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+
+/**
+ * Writes {@link Product} and {@link ProductList} bodies as JSON with
+ * {@link ProductJsonWriter}. Write-only: request bodies, and every other
+ * response type, are left to Jackson.
+ */
+public class ProductJsonHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    public ProductJsonHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        // Assignable rather than equal so Hibernate proxies are covered too
+        return Product.class.isAssignableFrom(clazz) || clazz == ProductList.class;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Product JSON converter is write-only", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object body, HttpOutputMessage outputMessage) throws IOException {
+        if (body instanceof ProductList list) {
+            ProductJsonWriter.writeArray(list.getProducts(), outputMessage.getBody());
+        } else {
+            ProductJsonWriter.write((Product) body, outputMessage.getBody());
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package org.example.product_demo.json;
+
+import org.example.product_demo.model.Product;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Writes {@link Product} JSON straight into a byte buffer, producing the same
+ * bytes as the application's Jackson configuration.
+ * <p>
+ * Property names and punctuation are pre-encoded UTF-8, numbers and timestamps
+ * are formatted digit by digit without boxing or intermediate strings, and
+ * strings are escaped and encoded in place. Buffers are recycled through a
+ * small shared pool rather than a {@code ThreadLocal}: with virtual threads
+ * every request runs on a new thread, so a per-thread buffer would never be reused.
+ */
+public final class ProductJsonWriter {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int POOL_SIZE = 64;
+
+    // Worst case bytes for one char: a six-byte escape sequence
+    private static final int MAX_CHAR_BYTES = 6;
+
+    private static final byte[] ID = ascii("{\"id\":");
+    private static final byte[] NAME = ascii(",\"name\":");
+    private static final byte[] DESCRIPTION = ascii(",\"description\":");
+    private static final byte[] PRICE = ascii(",\"price\":");
+    private static final byte[] IMAGE_URL = ascii(",\"imageUrl\":");
+    private static final byte[] VERSION = ascii(",\"version\":");
+    private static final byte[] UPDATED_AT = ascii(",\"updatedAt\":");
+    private static final byte[] NULL = ascii("null");
+
+    private static final byte[] HEX = ascii("0123456789ABCDEF");
+
+    // Short escapes Jackson uses for control characters; 0 means a hex escape
+    private static final byte[] CONTROL_ESCAPES = new byte[32];
+
+    static {
+        CONTROL_ESCAPES['\b'] = 'b';
+        CONTROL_ESCAPES['\t'] = 't';
+        CONTROL_ESCAPES['\n'] = 'n';
+        CONTROL_ESCAPES['\f'] = 'f';
+        CONTROL_ESCAPES['\r'] = 'r';
+    }
+
+    private static final ArrayBlockingQueue<ProductJsonWriter> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private OutputStream out;
+
+    private ProductJsonWriter() { }
+
+    public static void write(Product product, OutputStream out) throws IOException {
+        ProductJsonWriter writer = acquire(out);
+        try {
+            writer.writeProduct(product);
+            writer.flush();
+        } finally {
+            release(writer);
+        }
+    }
+
+    public static void writeArray(Iterable<? extends Product> products, OutputStream out) throws IOException {
+        ProductJsonWriter writer = acquire(out);
+        try {
+            writer.writeByte('[');
+            boolean first = true;
+            for (Product product : products) {
+                if (!first) {
+                    writer.writeByte(',');
+                }
+                writer.writeProduct(product);
+                first = false;
+            }
+            writer.writeByte(']');
+            writer.flush();
+        } finally {
+            release(writer);
+        }
+    }
+
+    private static ProductJsonWriter acquire(OutputStream out) {
+        ProductJsonWriter writer = POOL.poll();
+        if (writer == null) {
+            writer = new ProductJsonWriter();
+        }
+        writer.out = out;
+        writer.position = 0;
+        return writer;
+    }
+
+    private static void release(ProductJsonWriter writer) {
+        writer.out = null;
+        POOL.offer(writer);
+    }
+
+    private void writeProduct(Product product) throws IOException {
+        writeRaw(ID);
+        writeLong(product.getId());
+        writeRaw(NAME);
+        writeString(product.getName());
+        writeRaw(DESCRIPTION);
+        writeString(product.getDescription());
+        writeRaw(PRICE);
+        writeDouble(product.getPrice());
+        writeRaw(IMAGE_URL);
+        writeString(product.getImageUrl());
+        writeRaw(VERSION);
+        writeLong(product.getVersion());
+        writeRaw(UPDATED_AT);
+        writeInstant(product.getUpdatedAt());
+        writeByte('}');
+    }
+
+    // ─── Values ───────────────────────────────────────
+
+    private void writeLong(Long value) throws IOException {
+        if (value == null) {
+            writeRaw(NULL);
+        } else {
+            writeLong(value.longValue());
+        }
+    }
+
+    private void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        writeDigits(value, digitCount(value));
+    }
+
+    private void writeDouble(Double value) throws IOException {
+        if (value == null) {
+            writeRaw(NULL);
+            return;
+        }
+        double d = value;
+        // Jackson quotes non-finite values
+        if (!Double.isFinite(d)) {
+            writeByte('"');
+            writeAscii(Double.toString(d));
+            writeByte('"');
+            return;
+        }
+
+        // Prices are almost always whole cents; those print exactly as Double.toString would
+        double abs = Math.abs(d);
+        long cents = Math.round(abs * 100);
+        if ((abs == 0 || (abs >= 1e-3 && abs < 1e7)) && cents / 100.0 == abs) {
+            ensure(24);
+            if (Math.copySign(1.0, d) < 0) {
+                buffer[position++] = '-';
+            }
+            long units = cents / 100;
+            int fraction = (int) (cents % 100);
+            writeDigits(units, digitCount(units));
+            buffer[position++] = '.';
+            if (fraction % 10 == 0) {
+                buffer[position++] = (byte) ('0' + fraction / 10);
+            } else {
+                buffer[position++] = (byte) ('0' + fraction / 10);
+                buffer[position++] = (byte) ('0' + fraction % 10);
+            }
+            return;
+        }
+        writeAscii(Double.toString(d));
+    }
+
+    private void writeInstant(Instant instant) throws IOException {
+        if (instant == null) {
+            writeRaw(NULL);
+            return;
+        }
+        long seconds = instant.getEpochSecond();
+        long days = Math.floorDiv(seconds, 86_400);
+        int secondOfDay = (int) Math.floorMod(seconds, 86_400);
+
+        // Civil date from days since 1970-01-01 (proleptic Gregorian)
+        long z = days + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        // ISO_INSTANT signs and widens years outside 0000-9999; leave those to the JDK
+        if (year < 0 || year > 9999) {
+            writeByte('"');
+            writeAscii(instant.toString());
+            writeByte('"');
+            return;
+        }
+
+        ensure(32);
+        buffer[position++] = '"';
+        writeDigits(year, 4);
+        buffer[position++] = '-';
+        writeDigits(month, 2);
+        buffer[position++] = '-';
+        writeDigits(day, 2);
+        buffer[position++] = 'T';
+        writeDigits(secondOfDay / 3600, 2);
+        buffer[position++] = ':';
+        writeDigits(secondOfDay / 60 % 60, 2);
+        buffer[position++] = ':';
+        writeDigits(secondOfDay % 60, 2);
+
+        // Fraction in groups of three digits, as many as needed
+        int nanos = instant.getNano();
+        if (nanos != 0) {
+            buffer[position++] = '.';
+            if (nanos % 1_000_000 == 0) {
+                writeDigits(nanos / 1_000_000, 3);
+            } else if (nanos % 1000 == 0) {
+                writeDigits(nanos / 1000, 6);
+            } else {
+                writeDigits(nanos, 9);
+            }
+        }
+        buffer[position++] = 'Z';
+        buffer[position++] = '"';
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            writeRaw(NULL);
+            return;
+        }
+        writeByte('"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (position + MAX_CHAR_BYTES > buffer.length) {
+                flushBuffer();
+            }
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    buffer[position++] = (byte) c;
+                } else {
+                    writeEscaped(c);
+                }
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate: same replacement as String.getBytes
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        writeByte('"');
+    }
+
+    private void writeEscaped(char c) {
+        buffer[position++] = '\\';
+        if (c == '"' || c == '\\') {
+            buffer[position++] = (byte) c;
+        } else if (CONTROL_ESCAPES[c] != 0) {
+            buffer[position++] = CONTROL_ESCAPES[c];
+        } else {
+            buffer[position++] = 'u';
+            buffer[position++] = '0';
+            buffer[position++] = '0';
+            buffer[position++] = HEX[c >> 4];
+            buffer[position++] = HEX[c & 0xF];
+        }
+    }
+
+    // ─── Buffer ───────────────────────────────────────
+
+    // Caller guarantees room for width bytes
+    private void writeDigits(long value, int width) {
+        int end = position + width;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position = end;
+    }
+
+    private static int digitCount(long value) {
+        int count = 1;
+        while (value >= 10) {
+            value /= 10;
+            count++;
+        }
+        return count;
+    }
+
+    private void writeAscii(String value) throws IOException {
+        ensure(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            buffer[position++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void writeRaw(byte[] bytes) throws IOException {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void writeByte(char c) throws IOException {
+        ensure(1);
+        buffer[position++] = (byte) c;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (position + bytes > buffer.length) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+
+    private void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.product_demo.json;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import org.example.product_demo.model.Product;
+
+import java.util.List;
+
+/**
+ * A product list response body. The element type of a plain {@code List} is
+ * erased by the time a converter is chosen, so listings are wrapped to let
+ * {@link ProductJsonHttpMessageConverter} recognise them. Any other converter
+ * still sees a plain array.
+ */
+public final class ProductList {
+    private final List<Product> products;
+
+    private ProductList(List<Product> products) {
+        this.products = products;
+    }
+
+    public static ProductList of(List<Product> products) {
+        return new ProductList(products);
+    }
+
+    @JsonValue
+    public List<Product> getProducts() { return products; }
+}
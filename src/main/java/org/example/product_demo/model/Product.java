@@ -1,12 +1,25 @@
 package org.example.product_demo.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.Instant;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        // Composite keys backing keyset pagination when sorting by price or name
+        @Index(name = "idx_products_price_id", columnList = "price, id"),
+        @Index(name = "idx_products_name_id", columnList = "name, id"),
+        // Range scan for delta sync
+        @Index(name = "idx_products_change_seq", columnList = "change_seq")
+})
 public class Product {
+    // Pooled sequence ids let Hibernate batch inserts; IDENTITY forces one round trip per row
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "product_seq", allocationSize = 50)
     private Long id;
 
     private String name;
@@ -17,6 +30,24 @@ public class Product {
     @Column(name = "image_url")
     private String imageUrl;
 
+    // ─── Change tracking ──────────────────────────────
+    // Bumped by Hibernate on every update; the default backfills rows that predate the column
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+
+    @Column(name = "updated_at")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Instant updatedAt;
+
+    // Assigned from product_change_seq by a database trigger on every insert and update,
+    // so it also covers writes that bypass Hibernate; see DatabaseMigrationRunner
+    @Column(name = "change_seq", insertable = false, updatable = false)
+    @JsonIgnore
+    private Long changeSeq;
+
     public Product() { }
 
     // ─── Updated constructor ──────────────────────────
@@ -42,4 +73,18 @@ public class Product {
 
     public String getImageUrl() { return imageUrl; }
     public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+
+    public Long getChangeSeq() { return changeSeq; }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        this.updatedAt = Instant.now();
+    }
 }
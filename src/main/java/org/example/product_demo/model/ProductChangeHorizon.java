@@ -0,0 +1,32 @@
+package org.example.product_demo.model;
+
+import jakarta.persistence.*;
+
+/**
+ * How far delta sync history has been purged: tombstones up to and including
+ * {@code purgedThrough} are gone, so a client whose watermark is older may have
+ * missed deletes and has to reload. A single row, id {@link #ID}.
+ */
+@Entity
+@Table(name = "product_change_horizon")
+public class ProductChangeHorizon {
+
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(name = "purged_through", nullable = false)
+    private long purgedThrough;
+
+    public ProductChangeHorizon() {
+    }
+
+    public ProductChangeHorizon(long purgedThrough) {
+        this.id = ID;
+        this.purgedThrough = purgedThrough;
+    }
+
+    public Integer getId() { return id; }
+    public long getPurgedThrough() { return purgedThrough; }
+}
@@ -0,0 +1,28 @@
+package org.example.product_demo.model;
+
+/**
+ * Listing view of a {@link Product} without the description or change tracking.
+ * Built directly by constructor-expression queries, so no entity is loaded.
+ */
+public class ProductSummary {
+    private final Long id;
+    private final String name;
+    private final Double price;
+    private final String imageUrl;
+
+    public ProductSummary(Long id, String name, Double price, String imageUrl) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.imageUrl = imageUrl;
+    }
+
+    public static ProductSummary of(Product product) {
+        return new ProductSummary(product.getId(), product.getName(), product.getPrice(), product.getImageUrl());
+    }
+
+    public Long getId() { return id; }
+    public String getName() { return name; }
+    public Double getPrice() { return price; }
+    public String getImageUrl() { return imageUrl; }
+}
@@ -0,0 +1,33 @@
+package org.example.product_demo.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Marks a deleted product so delta sync can tell clients to drop it. Shares the
+ * product_change_seq numbering with {@link Product#getChangeSeq()}.
+ */
+@Entity
+@Table(name = "product_tombstones", indexes = {
+        @Index(name = "idx_product_tombstones_change_seq", columnList = "change_seq")
+})
+public class ProductTombstone {
+
+    // Product ids come from product_seq and are never reused, so one tombstone per id
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "change_seq", nullable = false)
+    private long changeSeq;
+
+    @Column(name = "deleted_at", nullable = false)
+    private Instant deletedAt;
+
+    public ProductTombstone() { }
+
+    public Long getProductId() { return productId; }
+    public long getChangeSeq() { return changeSeq; }
+    public Instant getDeletedAt() { return deletedAt; }
+}
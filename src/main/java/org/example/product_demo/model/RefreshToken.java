@@ -4,22 +4,30 @@ import jakarta.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "refresh_tokens")
+@Table(name = "refresh_tokens", indexes = {
+        // Lets RefreshTokenPurger find expired rows without scanning the table
+        @Index(name = "idx_refresh_tokens_expiry_date", columnList = "expiry_date")
+})
 public class RefreshToken {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // SHA-256 digest of the token, base64url; see RefreshTokenStore
     @Column(nullable = false, unique = true)
     private String token;
 
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", referencedColumnName = "id")
     private User user;
 
     @Column(nullable = false)
     private Instant expiryDate;
 
+    // The user's token version when this token was issued; null on rows issued before it was stored
+    @Column(name = "token_version")
+    private Integer tokenVersion;
+
     // Constructors
     public RefreshToken() {
     }
@@ -28,6 +36,7 @@ public class RefreshToken {
         this.token = token;
         this.user = user;
         this.expiryDate = expiryDate;
+        this.tokenVersion = user.getTokenVersion();
     }
 
     // Getters and setters
@@ -62,4 +71,12 @@ public class RefreshToken {
     public void setExpiryDate(Instant expiryDate) {
         this.expiryDate = expiryDate;
     }
+
+    public Integer getTokenVersion() {
+        return tokenVersion;
+    }
+
+    public void setTokenVersion(Integer tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
 }
\ No newline at end of file
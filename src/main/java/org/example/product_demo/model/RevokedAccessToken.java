@@ -0,0 +1,46 @@
+package org.example.product_demo.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * An access token revoked before its expiry, by its {@code jti} claim. Kept
+ * until the token would have expired anyway; every instance loads these into
+ * its in-memory revocation list.
+ */
+@Entity
+@Table(name = "revoked_access_tokens", indexes = {
+        @Index(name = "idx_revoked_access_tokens_revoked_at", columnList = "revoked_at"),
+        @Index(name = "idx_revoked_access_tokens_expires_at", columnList = "expires_at")
+})
+public class RevokedAccessToken {
+
+    @Id
+    @Column(length = 36)
+    private String jti;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @Column(name = "revoked_at", nullable = false)
+    private Instant revokedAt;
+
+    public RevokedAccessToken() {
+    }
+
+    public RevokedAccessToken(String jti, Instant expiresAt, Instant revokedAt) {
+        this.jti = jti;
+        this.expiresAt = expiresAt;
+        this.revokedAt = revokedAt;
+    }
+
+    public String getJti() { return jti; }
+    public void setJti(String jti) { this.jti = jti; }
+
+    public Instant getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
+
+    public Instant getRevokedAt() { return revokedAt; }
+    public void setRevokedAt(Instant revokedAt) { this.revokedAt = revokedAt; }
+}
@@ -1,12 +1,11 @@
 package org.example.product_demo.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 @Entity
@@ -29,6 +28,12 @@ public class User implements UserDetails {
     @Enumerated(EnumType.STRING)
     private UserRole role = UserRole.USER;
 
+    // Copied into every access token; bumping it revokes all tokens issued before
+    @ColumnDefault("0")
+    @Column(name = "token_version", nullable = false)
+    @JsonIgnore
+    private int tokenVersion;
+
     // Default constructor
     public User() {}
 
@@ -67,12 +72,13 @@ public class User implements UserDetails {
 
     public boolean isAdmin() { return role == UserRole.ADMIN; }
 
+    public int getTokenVersion() { return tokenVersion; }
+    public void setTokenVersion(int tokenVersion) { this.tokenVersion = tokenVersion; }
+
     // UserDetails implementation
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        List<SimpleGrantedAuthority> authorities = new ArrayList<>();
-        authorities.add(new SimpleGrantedAuthority("ROLE_" + role.name()));
-        return authorities;
+        return role.getAuthorities();
     }
 
     @Override
@@ -1,6 +1,18 @@
 package org.example.product_demo.model;
 
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
 public enum UserRole {
     USER,
-    ADMIN
-}
\ No newline at end of file
+    ADMIN;
+
+    // Built once per role; principals share it rather than allocating a list per request
+    private final List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_" + name()));
+
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.product_demo.repository;
+
+import org.example.product_demo.model.ProductChangeHorizon;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ProductChangeHorizonRepository extends JpaRepository<ProductChangeHorizon, Integer> {
+
+    @Query("select h.purgedThrough from ProductChangeHorizon h where h.id = " + ProductChangeHorizon.ID)
+    Optional<Long> findPurgedThrough();
+
+    // Only ever moves forward, so purges on several instances cannot lower it
+    @Modifying
+    @Query("update ProductChangeHorizon h set h.purgedThrough = :changeSeq "
+            + "where h.id = " + ProductChangeHorizon.ID + " and h.purgedThrough < :changeSeq")
+    int raisePurgedThrough(@Param("changeSeq") long changeSeq);
+}
@@ -0,0 +1,28 @@
+package org.example.product_demo.repository;
+
+import org.example.product_demo.model.Product;
+
+import java.util.Map;
+import java.util.Optional;
+
+public interface ProductPatchQueries {
+
+    /**
+     * Columns a partial update may set, keyed by their JSON property name.
+     */
+    Map<String, String> PATCHABLE_COLUMNS = Map.of(
+            "name", "name",
+            "description", "description",
+            "price", "price",
+            "imageUrl", "image_url");
+
+    /**
+     * Sets only the given properties in a single {@code UPDATE}, bumping the version,
+     * and returns the row as it is after the update without a second select.
+     * When {@code expectedVersion} is given the row is only updated if it still has
+     * that version.
+     *
+     * @return the updated product (detached), or empty when no row matched
+     */
+    Optional<Product> patch(Long id, Map<String, Object> changes, Long expectedVersion);
+}
@@ -0,0 +1,88 @@
+package org.example.product_demo.repository;
+
+import org.example.product_demo.model.Product;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.CallableStatement;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+class ProductPatchQueriesImpl implements ProductPatchQueries {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    ProductPatchQueriesImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Optional<Product> patch(Long id, Map<String, Object> changes, Long expectedVersion) {
+        List<Object> values = new ArrayList<>();
+        List<Integer> types = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("BEGIN UPDATE products SET ");
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            String column = PATCHABLE_COLUMNS.get(change.getKey());
+            if (column == null) {
+                throw new IllegalArgumentException("Property cannot be patched: " + change.getKey());
+            }
+            sql.append(column).append(" = ?, ");
+            values.add(change.getValue());
+            types.add(column.equals("price") ? Types.NUMERIC : Types.VARCHAR);
+        }
+        sql.append("version = version + 1, updated_at = ? WHERE id = ?");
+        values.add(OffsetDateTime.ofInstant(Instant.now(), ZoneOffset.UTC));
+        types.add(Types.TIMESTAMP_WITH_TIMEZONE);
+        values.add(id);
+        types.add(Types.NUMERIC);
+        if (expectedVersion != null) {
+            sql.append(" AND version = ?");
+            values.add(expectedVersion);
+            types.add(Types.NUMERIC);
+        }
+        // Oracle hands back the post-update row in the same round trip
+        sql.append(" RETURNING name, description, price, image_url, version, updated_at INTO ?, ?, ?, ?, ?, ?;")
+                .append(" ? := SQL%ROWCOUNT; END;");
+
+        return jdbcTemplate.execute(sql.toString(), (CallableStatement cs) -> {
+            for (int i = 0; i < values.size(); i++) {
+                if (values.get(i) == null) {
+                    cs.setNull(i + 1, types.get(i));
+                } else {
+                    cs.setObject(i + 1, values.get(i), types.get(i));
+                }
+            }
+            int out = values.size() + 1;
+            cs.registerOutParameter(out, Types.VARCHAR);
+            cs.registerOutParameter(out + 1, Types.VARCHAR);
+            cs.registerOutParameter(out + 2, Types.NUMERIC);
+            cs.registerOutParameter(out + 3, Types.VARCHAR);
+            cs.registerOutParameter(out + 4, Types.NUMERIC);
+            cs.registerOutParameter(out + 5, Types.TIMESTAMP_WITH_TIMEZONE);
+            cs.registerOutParameter(out + 6, Types.INTEGER);
+            cs.execute();
+
+            if (cs.getInt(out + 6) == 0) {
+                return Optional.empty();
+            }
+
+            Product product = new Product();
+            product.setId(id);
+            product.setName(cs.getString(out));
+            product.setDescription(cs.getString(out + 1));
+            BigDecimal price = cs.getBigDecimal(out + 2);
+            product.setPrice(price == null ? null : price.doubleValue());
+            product.setImageUrl(cs.getString(out + 3));
+            product.setVersion(cs.getLong(out + 4));
+            OffsetDateTime updatedAt = cs.getObject(out + 5, OffsetDateTime.class);
+            product.setUpdatedAt(updatedAt == null ? null : updatedAt.toInstant());
+            return Optional.of(product);
+        });
+    }
+}
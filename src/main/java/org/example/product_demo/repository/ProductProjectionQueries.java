@@ -0,0 +1,23 @@
+package org.example.product_demo.repository;
+
+import org.example.product_demo.model.ProductSummary;
+
+import java.util.List;
+
+/**
+ * Projection queries that select only the columns of a view instead of whole
+ * entities. Implemented with the Criteria API so one method covers every
+ * keyset ordering.
+ */
+public interface ProductProjectionQueries {
+
+    /**
+     * Returns up to {@code limit} summaries ordered by {@code sortProperty} (nulls
+     * last) then id, starting after the row identified by {@code afterId} and
+     * {@code afterValue}. A {@code null} {@code afterId} starts at the beginning;
+     * a {@code null} {@code afterValue} positions the seek inside the trailing
+     * null block.
+     */
+    List<ProductSummary> findSummaryPage(String sortProperty, boolean descending,
+                                         Long afterId, Object afterValue, int limit);
+}
@@ -0,0 +1,65 @@
+package org.example.product_demo.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.example.product_demo.model.Product;
+import org.example.product_demo.model.ProductSummary;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+
+import java.util.List;
+
+class ProductProjectionQueriesImpl implements ProductProjectionQueries {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public List<ProductSummary> findSummaryPage(String sortProperty, boolean descending,
+                                                Long afterId, Object afterValue, int limit) {
+        HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductSummary> query = cb.createQuery(ProductSummary.class);
+        Root<Product> product = query.from(Product.class);
+        Path<Long> id = product.get("id");
+
+        query.select(cb.construct(ProductSummary.class,
+                id, product.get("name"), product.get("price"), product.get("imageUrl")));
+
+        boolean byId = "id".equals(sortProperty);
+        Expression<Comparable> key = byId ? null : product.get(sortProperty);
+
+        if (afterId != null) {
+            Predicate idAfter = descending ? cb.lessThan(id, afterId) : cb.greaterThan(id, afterId);
+            if (byId) {
+                query.where(idAfter);
+            } else if (afterValue == null) {
+                query.where(cb.and(cb.isNull(key), idAfter));
+            } else {
+                Comparable value = (Comparable) afterValue;
+                Predicate valueAfter = descending ? cb.lessThan(key, value) : cb.greaterThan(key, value);
+                query.where(cb.or(
+                        valueAfter,
+                        cb.and(cb.equal(key, value), idAfter),
+                        cb.isNull(key)));
+            }
+        }
+
+        if (byId) {
+            query.orderBy(descending ? cb.desc(id) : cb.asc(id));
+        } else {
+            // nullsFirst = false keeps nulls at the end in both directions, like the entity queries
+            query.orderBy(
+                    descending ? cb.desc(key, false) : cb.asc(key, false),
+                    descending ? cb.desc(id) : cb.asc(id));
+        }
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
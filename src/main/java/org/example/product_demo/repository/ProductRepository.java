@@ -1,9 +1,120 @@
 package org.example.product_demo.repository;
 
 import org.example.product_demo.model.Product;
+import org.example.product_demo.model.ProductSummary;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>,
+        ProductProjectionQueries, ProductPatchQueries {
+
+    // ─── Summary view ─────────────────────────────────
+    @Query("select new org.example.product_demo.model.ProductSummary(p.id, p.name, p.price, p.imageUrl) "
+            + "from Product p")
+    List<ProductSummary> findAllSummaries();
+
+    // ─── Versions for conditional GETs ────────────────
+    @Query("select p.version from Product p where p.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * Highest change_seq of any live or deleted product. Deletes leave a tombstone
+     * with a newer number, so this moves with every write; each MAX is a single
+     * probe at the end of its change_seq index.
+     */
+    @Query(value = "SELECT GREATEST(NVL((SELECT MAX(change_seq) FROM products), 0), "
+            + "NVL((SELECT MAX(change_seq) FROM product_tombstones), 0)) FROM DUAL", nativeQuery = true)
+    long findCatalogChangeSeq();
+
+    // ─── Keyset pagination by id ──────────────────────
+    @Query("select p from Product p order by p.id asc")
+    List<Product> findFirstPageById(Limit limit);
+
+    @Query("select p from Product p order by p.id desc")
+    List<Product> findFirstPageByIdDesc(Limit limit);
+
+    @Query("select p from Product p where p.id > :id order by p.id asc")
+    List<Product> findPageAfterId(@Param("id") Long id, Limit limit);
+
+    @Query("select p from Product p where p.id < :id order by p.id desc")
+    List<Product> findPageBeforeId(@Param("id") Long id, Limit limit);
+
+    // ─── Keyset pagination by (price, id), nulls last ─
+    @Query("select p from Product p order by p.price asc nulls last, p.id asc")
+    List<Product> findFirstPageByPrice(Limit limit);
+
+    @Query("select p from Product p order by p.price desc nulls last, p.id desc")
+    List<Product> findFirstPageByPriceDesc(Limit limit);
+
+    @Query("select p from Product p where p.price > :price or (p.price = :price and p.id > :id) or p.price is null "
+            + "order by p.price asc nulls last, p.id asc")
+    List<Product> findPageAfterPrice(@Param("price") Double price, @Param("id") Long id, Limit limit);
+
+    @Query("select p from Product p where p.price < :price or (p.price = :price and p.id < :id) or p.price is null "
+            + "order by p.price desc nulls last, p.id desc")
+    List<Product> findPageBeforePrice(@Param("price") Double price, @Param("id") Long id, Limit limit);
+
+    @Query("select p from Product p where p.price is null and p.id > :id order by p.id asc")
+    List<Product> findPageAfterNullPrice(@Param("id") Long id, Limit limit);
+
+    @Query("select p from Product p where p.price is null and p.id < :id order by p.id desc")
+    List<Product> findPageBeforeNullPrice(@Param("id") Long id, Limit limit);
+
+    // ─── Keyset pagination by (name, id), nulls last ──
+    @Query("select p from Product p order by p.name asc nulls last, p.id asc")
+    List<Product> findFirstPageByName(Limit limit);
+
+    @Query("select p from Product p order by p.name desc nulls last, p.id desc")
+    List<Product> findFirstPageByNameDesc(Limit limit);
+
+    @Query("select p from Product p where p.name > :name or (p.name = :name and p.id > :id) or p.name is null "
+            + "order by p.name asc nulls last, p.id asc")
+    List<Product> findPageAfterName(@Param("name") String name, @Param("id") Long id, Limit limit);
+
+    @Query("select p from Product p where p.name < :name or (p.name = :name and p.id < :id) or p.name is null "
+            + "order by p.name desc nulls last, p.id desc")
+    List<Product> findPageBeforeName(@Param("name") String name, @Param("id") Long id, Limit limit);
+
+    @Query("select p from Product p where p.name is null and p.id > :id order by p.id asc")
+    List<Product> findPageAfterNullName(@Param("id") Long id, Limit limit);
+
+    @Query("select p from Product p where p.name is null and p.id < :id order by p.id desc")
+    List<Product> findPageBeforeNullName(@Param("id") Long id, Limit limit);
+
+    // ─── Delta sync ───────────────────────────────────
+    @Query("select p from Product p where p.changeSeq > :since order by p.changeSeq asc")
+    List<Product> findChangedSince(@Param("since") long since, Limit limit);
+
+    @Modifying
+    @Query("delete from Product p where p.id = :id")
+    int deleteProductById(@Param("id") Long id);
+
+    // ─── Full catalog export ──────────────────────────
+    // Must be consumed inside a transaction; the cursor stays open until the stream is closed
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("select p from Product p order by p.id asc")
+    Stream<Product> streamAllOrderById();
+
+    // ─── Stats reconcile ──────────────────────────────
+    // Rows are [id, price]; same transaction requirement as above
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select p.id, p.price from Product p")
+    Stream<Object[]> streamAllPrices();
 }
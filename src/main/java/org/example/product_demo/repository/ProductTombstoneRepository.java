@@ -0,0 +1,25 @@
+package org.example.product_demo.repository;
+
+import org.example.product_demo.model.ProductTombstone;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface ProductTombstoneRepository extends JpaRepository<ProductTombstone, Long> {
+
+    @Query("select t from ProductTombstone t where t.changeSeq > :since order by t.changeSeq asc")
+    List<ProductTombstone> findChangedSince(@Param("since") long since, Limit limit);
+
+    // Numbered from the same sequence as product writes, so deletes interleave with them in sync order
+    @Modifying
+    @Query(value = "INSERT INTO product_tombstones (product_id, change_seq, deleted_at) "
+            + "VALUES (:productId, product_change_seq.nextval, :deletedAt)", nativeQuery = true)
+    int insertTombstone(@Param("productId") Long productId, @Param("deletedAt") Instant deletedAt);
+}
@@ -1,19 +1,28 @@
 package org.example.product_demo.repository;
 
 import org.example.product_demo.model.RefreshToken;
-import org.example.product_demo.model.User;
+import org.example.product_demo.token.RefreshTokenGrant;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
 @Repository
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
-    Optional<RefreshToken> findByToken(String token);
+
+    // The version recorded at issue, not the user's current one, so a token issued before a revocation fails the check
+    @Query("SELECT new org.example.product_demo.token.RefreshTokenGrant("
+            + "u.id, u.username, u.role, COALESCE(t.tokenVersion, 0), t.expiryDate) "
+            + "FROM RefreshToken t JOIN t.user u WHERE t.token = :token")
+    Optional<RefreshTokenGrant> findGrantByToken(String token);
 
     @Modifying
-    int deleteByUser(User user);
+    @Query("DELETE FROM RefreshToken t WHERE t.token = :token")
+    int deleteByToken(String token);
 
-    Optional<RefreshToken> findByUser(User user);
-}
\ No newline at end of file
+    @Modifying
+    @Query("DELETE FROM RefreshToken t WHERE t.user.id = :userId")
+    int deleteByUserId(Long userId);
+}
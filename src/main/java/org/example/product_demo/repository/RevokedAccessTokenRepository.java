@@ -0,0 +1,24 @@
+package org.example.product_demo.repository;
+
+import org.example.product_demo.model.RevokedAccessToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface RevokedAccessTokenRepository extends JpaRepository<RevokedAccessToken, String> {
+
+    List<RevokedAccessToken> findByRevokedAtAfter(Instant since);
+
+    List<RevokedAccessToken> findByExpiresAtAfter(Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RevokedAccessToken r WHERE r.expiresAt < :now")
+    int deleteExpired(Instant now);
+}
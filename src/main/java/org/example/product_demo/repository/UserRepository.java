@@ -2,8 +2,10 @@ package org.example.product_demo.repository;
 
 import org.example.product_demo.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +13,11 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
+
+    @Query("SELECT u.tokenVersion FROM User u WHERE u.id = :id")
+    Optional<Integer> findTokenVersionById(Long id);
+
+    // Pairs of [id, tokenVersion] for every user
+    @Query("SELECT u.id, u.tokenVersion FROM User u")
+    List<Object[]> findAllTokenVersions();
 }
\ No newline at end of file
@@ -0,0 +1,602 @@
+package org.example.product_demo.search;
+
+import jakarta.persistence.EntityManager;
+import org.example.product_demo.model.Product;
+import org.example.product_demo.repository.ProductRepository;
+import org.example.product_demo.service.ProductCache;
+import org.example.product_demo.service.ProductChangeEvent;
+import org.example.product_demo.service.ProductChanges;
+import org.example.product_demo.service.ProductService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over product names and descriptions, ranked with BM25.
+ * <p>
+ * Every indexed product gets a dense internal document number; postings are kept
+ * as parallel {@code int} arrays of document numbers and term frequencies in
+ * ascending document order, so queries are a document-at-a-time merge of a few
+ * arrays with a fixed-size top-k heap. Updates append a new document and mark the
+ * old one deleted; the arrays are compacted once deleted documents outnumber
+ * live ones.
+ * <p>
+ * The index is built from the database when the application is ready and kept
+ * current from {@link ProductChangeEvent}s published by the product write paths.
+ * Writes through other instances raise no event here, so every
+ * {@code product.search.reconcile-interval} the delta sync feed is read from the
+ * last watermark and applied the same way; when the feed asks for a resync the
+ * index is rebuilt, dropping products that no longer exist.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger logger = Logger.getLogger(ProductSearchIndex.class.getName());
+
+    public static final int MAX_RESULTS = 100;
+
+    // BM25 parameters
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    // Name matches count as this many description matches
+    private static final int NAME_WEIGHT = 2;
+
+    private static final int MIN_DELETED_FOR_COMPACTION = 1024;
+
+    private final ProductRepository productRepository;
+    private final ProductCache productCache;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ProductService productService;
+    private final Duration reconcileInterval;
+
+    private final ScheduledExecutorService reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-search-reconcile");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Delta sync watermark the index is current to; only touched by rebuild and the reconciler, never together
+    private volatile long watermark;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // ─── Guarded by lock ──────────────────────────────
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private Postings[] postings = new Postings[1024];
+    private int termCount;
+
+    private int docCount;
+    private long[] docProductIds = new long[1024];
+    private long[] docVersions = new long[1024];
+    private int[] docLengths = new int[1024];
+    private int[][] docTerms = new int[1024][];
+    private final BitSet deleted = new BitSet();
+    private final Map<Long, Integer> docsByProduct = new HashMap<>();
+    private int liveDocs;
+    private long liveLength;
+
+    // Ids removed while a rebuild is streaming rows, so it cannot resurrect them
+    private Set<Long> removedDuringRebuild;
+    // Ids indexed from events while a rebuild is streaming rows, so it does not drop them as gone
+    private Set<Long> indexedDuringRebuild;
+
+    public ProductSearchIndex(ProductRepository productRepository,
+                              ProductCache productCache,
+                              EntityManager entityManager,
+                              PlatformTransactionManager transactionManager,
+                              ProductService productService,
+                              @Value("${product.search.reconcile-interval:PT30S}") Duration reconcileInterval) {
+        this.productRepository = productRepository;
+        this.productCache = productCache;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.productService = productService;
+        this.reconcileInterval = reconcileInterval;
+    }
+
+    private static final class Postings {
+        int[] docs = new int[4];
+        int[] freqs = new int[4];
+        int size;
+        int liveDf;
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+            liveDf++;
+        }
+    }
+
+    // ─── Maintenance ──────────────────────────────────
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+        long interval = reconcileInterval.toMillis();
+        reconciler.scheduleWithFixedDelay(this::reconcile, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Rebuilds the index from all products in the database, removing documents
+     * of products that are gone.
+     */
+    public void rebuild() {
+        logger.info("Building product search index...");
+        lock.writeLock().lock();
+        try {
+            removedDuringRebuild = new HashSet<>();
+            indexedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Set<Long> seen = new HashSet<>();
+        try {
+            // Read first, so changes that land during the stream are fetched again by the next reconcile
+            long startedAt = productRepository.findCatalogChangeSeq();
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Product> products = productRepository.streamAllOrderById()) {
+                    products.forEach(product -> {
+                        seen.add(product.getId());
+                        index(product, true);
+                        entityManager.detach(product);
+                    });
+                }
+            });
+            dropAllExcept(seen);
+            watermark = startedAt;
+            logger.info("Product search index built with " + size() + " products");
+        } catch (Exception e) {
+            // Search degrades to whatever was indexed; don't fail startup over it
+            logger.severe("Product search index build failed: " + e.getMessage());
+        } finally {
+            lock.writeLock().lock();
+            try {
+                removedDuringRebuild = null;
+                indexedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Applies changes made since the last watermark, including those made through
+     * other instances.
+     */
+    public void reconcile() {
+        try {
+            ProductChanges changes;
+            do {
+                changes = productService.findChanges(watermark, ProductService.MAX_CHANGES_LIMIT);
+                if (changes.isResync()) {
+                    rebuild();
+                    return;
+                }
+                for (Product product : changes.getUpdated()) {
+                    index(product);
+                }
+                for (Long productId : changes.getDeleted()) {
+                    remove(productId);
+                }
+                watermark = changes.getWatermark();
+            } while (changes.isHasMore());
+        } catch (Exception e) {
+            logger.warning("Product search index reconcile failed: " + e.getMessage());
+        }
+    }
+
+    private void dropAllExcept(Set<Long> seen) {
+        lock.writeLock().lock();
+        try {
+            List<Long> gone = new ArrayList<>();
+            for (Long productId : docsByProduct.keySet()) {
+                if (!seen.contains(productId) && !indexedDuringRebuild.contains(productId)) {
+                    gone.add(productId);
+                }
+            }
+            for (Long productId : gone) {
+                deleteDoc(docsByProduct.remove(productId));
+            }
+            maybeCompact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or replaces the product's document. A product older than the indexed
+     * version is ignored, so a slow writer cannot roll the index back.
+     */
+    public void index(Product product) {
+        index(product, false);
+    }
+
+    private void index(Product product, boolean fromRebuild) {
+        Map<String, Integer> frequencies = termFrequencies(product);
+
+        lock.writeLock().lock();
+        try {
+            Long id = product.getId();
+            if (fromRebuild && removedDuringRebuild != null && removedDuringRebuild.contains(id)) {
+                return;
+            }
+            if (!fromRebuild && indexedDuringRebuild != null) {
+                indexedDuringRebuild.add(id);
+            }
+
+            Integer existing = docsByProduct.get(id);
+            if (existing != null) {
+                if (docVersions[existing] >= product.getVersion()) {
+                    return;
+                }
+                deleteDoc(existing);
+            }
+            addDoc(id, product.getVersion(), frequencies);
+            maybeCompact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        if (event.getType() == ProductChangeEvent.Type.DELETED) {
+            remove(event.getProductId());
+        } else {
+            index(event.getProduct());
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docsByProduct.remove(productId);
+            if (doc != null) {
+                deleteDoc(doc);
+                maybeCompact();
+            }
+            if (removedDuringRebuild != null) {
+                removedDuringRebuild.add(productId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Map<String, Integer> termFrequencies(Product product) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : TextAnalyzer.tokenize(product.getName())) {
+            frequencies.merge(token, NAME_WEIGHT, Integer::sum);
+        }
+        for (String token : TextAnalyzer.tokenize(product.getDescription())) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        return frequencies;
+    }
+
+    private void addDoc(long productId, long version, Map<String, Integer> frequencies) {
+        if (docCount == docProductIds.length) {
+            int capacity = docCount * 2;
+            docProductIds = Arrays.copyOf(docProductIds, capacity);
+            docVersions = Arrays.copyOf(docVersions, capacity);
+            docLengths = Arrays.copyOf(docLengths, capacity);
+            docTerms = Arrays.copyOf(docTerms, capacity);
+        }
+
+        int doc = docCount++;
+        int[] terms = new int[frequencies.size()];
+        int length = 0;
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            int term = termIds.computeIfAbsent(entry.getKey(), key -> newTerm());
+            postings[term].add(doc, entry.getValue());
+            terms[i++] = term;
+            length += entry.getValue();
+        }
+
+        docProductIds[doc] = productId;
+        docVersions[doc] = version;
+        docLengths[doc] = length;
+        docTerms[doc] = terms;
+        docsByProduct.put(productId, doc);
+        liveDocs++;
+        liveLength += length;
+    }
+
+    private int newTerm() {
+        if (termCount == postings.length) {
+            postings = Arrays.copyOf(postings, termCount * 2);
+        }
+        postings[termCount] = new Postings();
+        return termCount++;
+    }
+
+    private void deleteDoc(int doc) {
+        deleted.set(doc);
+        liveDocs--;
+        liveLength -= docLengths[doc];
+        for (int term : docTerms[doc]) {
+            postings[term].liveDf--;
+        }
+        docTerms[doc] = null;
+    }
+
+    private void maybeCompact() {
+        int deletedDocs = docCount - liveDocs;
+        if (deletedDocs >= MIN_DELETED_FOR_COMPACTION && deletedDocs > liveDocs) {
+            compact();
+        }
+    }
+
+    // Renumbers live documents densely; relative order is kept, so postings stay sorted
+    private void compact() {
+        int[] remap = new int[docCount];
+        int next = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (deleted.get(doc)) {
+                remap[doc] = -1;
+                continue;
+            }
+            remap[doc] = next;
+            docProductIds[next] = docProductIds[doc];
+            docVersions[next] = docVersions[doc];
+            docLengths[next] = docLengths[doc];
+            docTerms[next] = docTerms[doc];
+            next++;
+        }
+        Arrays.fill(docTerms, next, docCount, null);
+
+        for (int term = 0; term < termCount; term++) {
+            Postings list = postings[term];
+            int kept = 0;
+            for (int i = 0; i < list.size; i++) {
+                int doc = remap[list.docs[i]];
+                if (doc >= 0) {
+                    list.docs[kept] = doc;
+                    list.freqs[kept] = list.freqs[i];
+                    kept++;
+                }
+            }
+            list.size = kept;
+        }
+
+        docsByProduct.replaceAll((productId, doc) -> remap[doc]);
+        deleted.clear();
+        docCount = next;
+    }
+
+    // ─── Queries ──────────────────────────────────────
+
+    /**
+     * Returns the {@code limit} best matches for {@code query}, best first. A product
+     * matches when it contains any query term.
+     */
+    public SearchResult search(String query, int limit) {
+        Set<String> queryTerms = new LinkedHashSet<>(TextAnalyzer.tokenize(query));
+        long[] productIds;
+        float[] scores;
+        int total = 0;
+
+        lock.readLock().lock();
+        try {
+            List<Postings> matched = new ArrayList<>(queryTerms.size());
+            for (String term : queryTerms) {
+                Integer id = termIds.get(term);
+                if (id != null && postings[id].liveDf > 0) {
+                    matched.add(postings[id]);
+                }
+            }
+            if (matched.isEmpty()) {
+                return new SearchResult(List.of(), 0);
+            }
+
+            Postings[] lists = matched.toArray(new Postings[0]);
+            int n = lists.length;
+            float[] idf = new float[n];
+            for (int i = 0; i < n; i++) {
+                int df = lists[i].liveDf;
+                idf[i] = (float) Math.log(1 + (liveDocs - df + 0.5) / (df + 0.5));
+            }
+            float avgLength = liveDocs == 0 ? 1f : (float) liveLength / liveDocs;
+
+            TopK top = new TopK(limit);
+            int[] pos = new int[n];
+            while (true) {
+                int doc = Integer.MAX_VALUE;
+                for (int i = 0; i < n; i++) {
+                    if (pos[i] < lists[i].size && lists[i].docs[pos[i]] < doc) {
+                        doc = lists[i].docs[pos[i]];
+                    }
+                }
+                if (doc == Integer.MAX_VALUE) {
+                    break;
+                }
+
+                float norm = K1 * (1 - B + B * docLengths[doc] / avgLength);
+                float score = 0;
+                for (int i = 0; i < n; i++) {
+                    if (pos[i] < lists[i].size && lists[i].docs[pos[i]] == doc) {
+                        int tf = lists[i].freqs[pos[i]];
+                        score += idf[i] * tf * (K1 + 1) / (tf + norm);
+                        pos[i]++;
+                    }
+                }
+                if (!deleted.get(doc)) {
+                    total++;
+                    top.offer(doc, score);
+                }
+            }
+
+            int hits = top.drainSorted();
+            productIds = new long[hits];
+            scores = new float[hits];
+            for (int i = 0; i < hits; i++) {
+                productIds[i] = docProductIds[top.docs[i]];
+                scores[i] = top.scores[i];
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return new SearchResult(resolve(productIds, scores), total);
+    }
+
+    // Loads hit products from the cache, fetching any misses with a single query
+    private List<SearchHit> resolve(long[] productIds, float[] scores) {
+        Map<Long, Product> products = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (long id : productIds) {
+            productCache.peek(id).ifPresentOrElse(p -> products.put(id, p), () -> missing.add(id));
+        }
+        if (!missing.isEmpty()) {
+            for (Product product : productRepository.findAllById(missing)) {
+                products.put(product.getId(), product);
+            }
+        }
+
+        List<SearchHit> hits = new ArrayList<>(productIds.length);
+        for (int i = 0; i < productIds.length; i++) {
+            Product product = products.get(productIds[i]);
+            // Deleted between the index lookup and the load
+            if (product != null) {
+                hits.add(new SearchHit(product, scores[i]));
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Bounded min-heap of (doc, score) on primitive arrays; the root is the
+     * weakest of the best {@code k} seen so far.
+     */
+    private static final class TopK {
+        private final int[] docs;
+        private final float[] scores;
+        private int size;
+
+        TopK(int k) {
+            docs = new int[k];
+            scores = new float[k];
+        }
+
+        void offer(int doc, float score) {
+            if (size < docs.length) {
+                docs[size] = doc;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (score > scores[0]) {
+                docs[0] = doc;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        /**
+         * Heap-sorts the retained entries in place, best first, and returns how many
+         * there are. The heap must not be offered to afterwards.
+         */
+        int drainSorted() {
+            int n = size;
+            while (n > 1) {
+                swap(0, --n);
+                siftDown(0, n);
+            }
+            return size;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[i] >= scores[parent]) {
+                    break;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            siftDown(i, size);
+        }
+
+        private void siftDown(int i, int n) {
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= n) {
+                    break;
+                }
+                int smallest = left + 1 < n && scores[left + 1] < scores[left] ? left + 1 : left;
+                if (scores[i] <= scores[smallest]) {
+                    break;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int doc = docs[a];
+            docs[a] = docs[b];
+            docs[b] = doc;
+            float score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+
+    public static class SearchResult {
+        private final List<SearchHit> items;
+        private final int total;
+
+        SearchResult(List<SearchHit> items, int total) {
+            this.items = items;
+            this.total = total;
+        }
+
+        public List<SearchHit> getItems() { return items; }
+        public int getTotal() { return total; }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reconciler.shutdownNow();
+    }
+}
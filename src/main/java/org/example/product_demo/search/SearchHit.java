@@ -0,0 +1,16 @@
+package org.example.product_demo.search;
+
+import org.example.product_demo.model.Product;
+
+public class SearchHit {
+    private final Product product;
+    private final float score;
+
+    public SearchHit(Product product, float score) {
+        this.product = product;
+        this.score = score;
+    }
+
+    public Product getProduct() { return product; }
+    public float getScore() { return score; }
+}
@@ -1,15 +1,24 @@
 package org.example.product_demo.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.example.product_demo.model.User;
+import org.example.product_demo.model.UserRole;
+import org.example.product_demo.service.UserTokenVersions;
+import org.example.product_demo.token.AccessTokenRevocations;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -17,31 +26,75 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
 import java.util.logging.Logger;
 
+/**
+ * Authenticates requests carrying a bearer token.
+ * <p>
+ * With {@code jwt.stateless-authentication} on (the default) the principal is
+ * built from the verified token's {@code userId} and {@code role} claims, so no
+ * query runs per request; revocation comes from the in-memory
+ * {@link UserTokenVersions}. With it off, the user is loaded from the database
+ * as before. Either way, a token revoked individually at logout is rejected
+ * through {@link AccessTokenRevocations}. Public routes that never look at the
+ * authentication skip token processing altogether.
+ */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private static final Logger logger = Logger.getLogger(JwtAuthenticationFilter.class.getName());
 
+    // permitAll routes that never read the authentication. Not all of /api/auth/**: logout uses the principal.
+    private static final RequestMatcher PUBLIC_ROUTES = new OrRequestMatcher(
+            new AntPathRequestMatcher("/api/products/**"),
+            new AntPathRequestMatcher("/api/auth/login"),
+            new AntPathRequestMatcher("/api/auth/register"),
+            new AntPathRequestMatcher("/api/auth/refresh-token"),
+            new AntPathRequestMatcher("/api/debug/**"),
+            new AntPathRequestMatcher("/api/cors-test/**"),
+            new AntPathRequestMatcher("/actuator/**"),
+            new AntPathRequestMatcher("/health"),
+            new AntPathRequestMatcher("/nginx-health"),
+            new AntPathRequestMatcher("/test"),
+            new AntPathRequestMatcher("/testdb"));
+
     @Autowired
     private JwtUtils jwtUtils;
 
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private UserTokenVersions tokenVersions;
+
+    @Autowired
+    private AccessTokenRevocations revocations;
+
+    @Value("${jwt.stateless-authentication:true}")
+    private boolean statelessAuthentication;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return PUBLIC_ROUTES.matches(request);
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateToken(jwt)) {
-                String username = jwtUtils.extractUsername(jwt);
+            Claims claims = jwt != null ? jwtUtils.getValidatedClaims(jwt) : null;
+            if (claims != null && !revocations.isRevoked(claims.getId())) {
+                // Tokens issued to principals other than User lack the claims and are looked up instead
+                UserDetails userDetails = statelessAuthentication && hasPrincipalClaims(claims)
+                        ? principalFromClaims(claims)
+                        : loadCurrentUser(claims);
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                if (userDetails != null) {
+                    UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                            userDetails, null, userDetails.getAuthorities());
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                }
             }
         } catch (Exception e) {
             logger.warning("Cannot set user authentication: " + e.getMessage());
@@ -50,6 +103,38 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private static boolean hasPrincipalClaims(Claims claims) {
+        return JwtUtils.getUserId(claims) != null && JwtUtils.getUserRole(claims) != null;
+    }
+
+    // Null when the token has been revoked
+    private UserDetails principalFromClaims(Claims claims) {
+        long userId = JwtUtils.getUserId(claims);
+        if (!tokenVersions.isCurrent(userId, JwtUtils.getTokenVersion(claims))) {
+            logger.fine(() -> "Revoked token presented for user " + userId);
+            return null;
+        }
+
+        // Carries only what the token does; load the entity for anything else
+        User user = new User();
+        user.setId(userId);
+        user.setUsername(claims.getSubject());
+        user.setRole(UserRole.valueOf(JwtUtils.getUserRole(claims)));
+        return user;
+    }
+
+    // Null when the token has been revoked
+    private UserDetails loadCurrentUser(Claims claims) {
+        if (claims.getSubject() == null) {
+            return null;
+        }
+        UserDetails userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+        if (userDetails instanceof User user && user.getTokenVersion() != JwtUtils.getTokenVersion(claims)) {
+            return null;
+        }
+        return userDetails;
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
 
@@ -59,4 +144,4 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         return null;
     }
-}
\ No newline at end of file
+}
@@ -1,39 +1,91 @@
 package org.example.product_demo.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.example.product_demo.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 import java.util.logging.Logger;
 
+/**
+ * Issues and verifies JWTs.
+ * <p>
+ * The signing key and parser are built once. Verified claims are cached by
+ * the SHA-256 digest of the token, so a client presenting the same bearer
+ * token on every call pays for signature checking and claims parsing once.
+ * An entry never outlives the token's expiry; failed verifications are not
+ * cached. Cached claims are shared and must be treated as read-only.
+ */
 @Component
 public class JwtUtils {
 
     private static final Logger logger = Logger.getLogger(JwtUtils.class.getName());
 
-    private final String jwtSecret;
+    // The user's token version when the token was issued; see UserTokenVersions
+    public static final String TOKEN_VERSION_CLAIM = "ver";
+
     private final long jwtExpiration;
+    private final Key signingKey;
+    private final JwtParser parser;
+    private final Cache<ByteBuffer, Claims> verifiedClaims;
 
     @Autowired
-    public JwtUtils(String jwtSecret, long jwtExpiration) {
-        this.jwtSecret = jwtSecret;
+    public JwtUtils(String jwtSecret,
+                    long jwtExpiration,
+                    MeterRegistry meterRegistry,
+                    @Value("${jwt.claims-cache.maximum-size:10000}") long maximumSize,
+                    @Value("${jwt.claims-cache.ttl:PT10M}") Duration ttl) {
         this.jwtExpiration = jwtExpiration;
-    }
-
-    private Key getSigningKey() {
-        byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.verifiedClaims = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<ByteBuffer, Claims>() {
+                    @Override
+                    public long expireAfterCreate(ByteBuffer key, Claims claims, long currentTime) {
+                        long ttlNanos = ttl.toNanos();
+                        Date expiration = claims.getExpiration();
+                        if (expiration == null) {
+                            return ttlNanos;
+                        }
+                        long untilExpiry = expiration.getTime() - System.currentTimeMillis();
+                        return Math.max(0, Math.min(ttlNanos, Duration.ofMillis(untilExpiry).toNanos()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(ByteBuffer key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(ByteBuffer key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedClaims, "jwt-claims");
     }
 
     public String generateToken(Authentication authentication) {
@@ -48,6 +100,7 @@ public class JwtUtils {
             claims.put("role", user.getRole().name());
             claims.put("userId", user.getId());
             claims.put("username", user.getUsername());
+            claims.put(TOKEN_VERSION_CLAIM, user.getTokenVersion());
         }
         return createToken(claims, userDetails.getUsername());
     }
@@ -58,10 +111,12 @@ public class JwtUtils {
 
         return Jwts.builder()
                 .setClaims(claims)
+                // jti, so this one token can be revoked; see AccessTokenRevocations
+                .setId(UUID.randomUUID().toString())
                 .setSubject(subject)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
@@ -78,23 +133,39 @@ public class JwtUtils {
         return claimsResolver.apply(claims);
     }
 
+    /**
+     * Verified claims of {@code token}, from the cache when it has been seen
+     * before.
+     *
+     * @throws JwtException if the token is malformed, badly signed or expired
+     */
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        ByteBuffer digest = digest(token);
+        Claims claims = verifiedClaims.getIfPresent(digest);
+        if (claims == null) {
+            // Concurrent first uses may each verify; cheaper than holding a lock across the HMAC
+            claims = parser.parseClaimsJws(token).getBody();
+            verifiedClaims.put(digest, claims);
+        }
+        return claims;
     }
 
     public boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        final Claims claims = extractAllClaims(token);
+        return (claims.getSubject().equals(userDetails.getUsername()) && !claims.getExpiration().before(new Date()));
     }
 
     public boolean validateToken(String token) {
+        return getValidatedClaims(token) != null;
+    }
+
+    /**
+     * Verifies {@code token} and returns its claims, or {@code null} if it is
+     * not valid. The token is parsed at most once, whatever is read from it.
+     */
+    public Claims getValidatedClaims(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(token);
-            return true;
+            return extractAllClaims(token);
         } catch (SignatureException e) {
             logger.warning("Invalid JWT signature: " + e.getMessage());
         } catch (MalformedJwtException e) {
@@ -106,22 +177,39 @@ public class JwtUtils {
         } catch (IllegalArgumentException e) {
             logger.warning("JWT claims string is empty: " + e.getMessage());
         }
-        return false;
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return null;
     }
 
     // Get user ID from JWT token
     public Long getUserIdFromToken(String token) {
-        Claims claims = extractAllClaims(token);
-        return ((Number) claims.get("userId")).longValue();
+        return getUserId(extractAllClaims(token));
     }
 
     // Get user role from JWT token
     public String getUserRoleFromToken(String token) {
-        Claims claims = extractAllClaims(token);
+        return getUserRole(extractAllClaims(token));
+    }
+
+    public static Long getUserId(Claims claims) {
+        Object userId = claims.get("userId");
+        return userId instanceof Number number ? number.longValue() : null;
+    }
+
+    public static String getUserRole(Claims claims) {
         return (String) claims.get("role");
     }
+
+    // Tokens issued before versions were introduced count as version 0
+    public static int getTokenVersion(Claims claims) {
+        Object version = claims.get(TOKEN_VERSION_CLAIM);
+        return version instanceof Number number ? number.intValue() : 0;
+    }
+
+    private static ByteBuffer digest(String token) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,240 @@
+package org.example.product_demo.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.example.product_demo.config.ReadRouting;
+import org.example.product_demo.model.Product;
+import org.example.product_demo.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The full product catalog, pre-serialized as a JSON array and pre-compressed,
+ * so serving it is a copy of bytes that already exist.
+ * <p>
+ * The snapshot is built when the application is ready and rebuilt in the
+ * background after product changes. Rebuilds are debounced and coalesced: a
+ * burst of writes causes one rebuild once it settles, and at most one rebuild
+ * waits behind a running one. Readers therefore see the catalog as of shortly
+ * after the last write, never a partially built one.
+ * <p>
+ * Writes through other instances raise no event here, so every
+ * {@code product.snapshot.check-interval} the catalog's highest change_seq is
+ * compared with the one the snapshot was built at, and a rebuild follows when it
+ * has moved. A write that commits behind a higher-numbered one can slip past
+ * that check, so a snapshot older than {@code product.snapshot.max-age} is
+ * rebuilt regardless.
+ */
+@Component
+public class CatalogSnapshot {
+
+    private static final Logger logger = Logger.getLogger(CatalogSnapshot.class.getName());
+
+    public static class Snapshot {
+        private final byte[] json;
+        private final byte[] gzip;
+        private final String hash;
+        private final int productCount;
+        private final Instant builtAt;
+
+        Snapshot(byte[] json, byte[] gzip, String hash, int productCount, Instant builtAt) {
+            this.json = json;
+            this.gzip = gzip;
+            this.hash = hash;
+            this.productCount = productCount;
+            this.builtAt = builtAt;
+        }
+
+        public byte[] getJson() { return json; }
+        public byte[] getGzip() { return gzip; }
+
+        /**
+         * Hex SHA-256 prefix of the uncompressed JSON.
+         */
+        public String getHash() { return hash; }
+        public int getProductCount() { return productCount; }
+        public Instant getBuiltAt() { return builtAt; }
+    }
+
+    private final ProductRepository productRepository;
+    private final EntityManager entityManager;
+    private final ObjectWriter writer;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Duration rebuildDelay;
+    private final Duration checkInterval;
+    private final Duration maxAge;
+
+    private final ScheduledExecutorService rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    // Catalog change_seq read before the current snapshot's rows; only touched on the rebuilder thread
+    private long builtAtChangeSeq = -1;
+
+    private volatile Snapshot current;
+
+    public CatalogSnapshot(ProductRepository productRepository,
+                           EntityManager entityManager,
+                           ObjectMapper objectMapper,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${product.snapshot.rebuild-delay:PT0.5S}") Duration rebuildDelay,
+                           @Value("${product.snapshot.check-interval:PT15S}") Duration checkInterval,
+                           @Value("${product.snapshot.max-age:PT10M}") Duration maxAge) {
+        this.productRepository = productRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writerFor(Product.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.rebuildDelay = rebuildDelay;
+        this.checkInterval = checkInterval;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * The latest complete snapshot, or {@code null} until the first build finishes.
+     */
+    public Snapshot current() {
+        return current;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        requestRebuild();
+        long check = checkInterval.toMillis();
+        rebuilder.scheduleWithFixedDelay(this::checkForOtherWrites, check, check, TimeUnit.MILLISECONDS);
+    }
+
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        requestRebuild();
+    }
+
+    public void requestRebuild() {
+        if (rebuildQueued.compareAndSet(false, true)) {
+            rebuilder.schedule(this::rebuild, rebuildDelay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void rebuild() {
+        // Cleared before reading, so writes that land during this build queue another one
+        rebuildQueued.set(false);
+        try {
+            long start = System.nanoTime();
+            // Rebuilds follow writes, so read from the primary rather than a replica that may lag
+            long changeSeq = ReadRouting.onPrimary(productRepository::findCatalogChangeSeq);
+            Snapshot snapshot = ReadRouting.onPrimary(this::buildUnchecked);
+            current = snapshot;
+            builtAtChangeSeq = changeSeq;
+            logger.info("Catalog snapshot rebuilt: " + snapshot.getProductCount() + " products, "
+                    + snapshot.getJson().length + " bytes (" + snapshot.getGzip().length + " gzipped) in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } catch (Exception e) {
+            logger.severe("Catalog snapshot rebuild failed: " + e.getMessage());
+        }
+    }
+
+    private void checkForOtherWrites() {
+        try {
+            Snapshot snapshot = current;
+            if (snapshot == null || snapshot.getBuiltAt().plus(maxAge).isBefore(Instant.now())
+                    || ReadRouting.onPrimary(productRepository::findCatalogChangeSeq) != builtAtChangeSeq) {
+                requestRebuild();
+            }
+        } catch (Exception e) {
+            logger.warning("Catalog snapshot change check failed: " + e.getMessage());
+        }
+    }
+
+    private Snapshot buildUnchecked() {
+        try {
+            return build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Snapshot build() throws IOException {
+        Snapshot previous = current;
+        ByteArrayOutputStream json = new ByteArrayOutputStream(previous != null ? previous.getJson().length : 8192);
+
+        Integer count = readOnlyTransaction.execute(status -> {
+            int written = 0;
+            try (Stream<Product> products = productRepository.streamAllOrderById();
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(json)) {
+                generator.writeStartArray();
+                Iterator<Product> it = products.iterator();
+                while (it.hasNext()) {
+                    Product product = it.next();
+                    writer.writeValue(generator, product);
+                    entityManager.detach(product);
+                    written++;
+                }
+                generator.writeEndArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return written;
+        });
+
+        byte[] jsonBytes = json.toByteArray();
+        return new Snapshot(jsonBytes, gzip(jsonBytes), hash(jsonBytes), count == null ? 0 : count, Instant.now());
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(512, data.length / 4));
+        // Compressed once and served many times, so spend the CPU on the best ratio
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static String hash(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.product_demo.service;
+
+import org.example.product_demo.repository.ProductRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the product catalog as a whole, for the ETag of the full listing.
+ * <p>
+ * Combines the highest {@code change_seq} in the database, read from the ends of
+ * the change_seq indexes of products and tombstones, with a count of writes this
+ * instance has published as {@link ProductChangeEvent}s. The first moves with
+ * every write on any instance and never repeats; the second moves when a local
+ * write commits, even when a concurrent write that took a higher sequence
+ * number committed first.
+ */
+@Component
+public class CatalogVersion {
+
+    private final ProductRepository productRepository;
+    private final AtomicLong localWrites = new AtomicLong();
+
+    public CatalogVersion(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    public String current() {
+        return Long.toHexString(productRepository.findCatalogChangeSeq()) + "-" + Long.toHexString(localWrites.get());
+    }
+
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        localWrites.incrementAndGet();
+    }
+}
@@ -0,0 +1,253 @@
+package org.example.product_demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.product_demo.model.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * {@code Idempotency-Key} handling for non-idempotent POSTs.
+ * <p>
+ * The first request with a key runs the action and stores its response; retries
+ * with the same key and body get that response replayed instead of repeating the
+ * write. Retries that arrive while the first execution is still running wait
+ * for it rather than starting their own. Server errors and exceptions are not
+ * stored, so a later retry runs the action again.
+ * <p>
+ * Keys are scoped to the caller: the authenticated user, or the client address
+ * for anonymous requests. Two clients that happen to pick the same key never
+ * see each other's responses.
+ * <p>
+ * Keys live in a bounded in-memory store and expire after
+ * {@code idempotency.ttl}; they are per node, which is enough for the retries
+ * a client or load balancer issues within seconds of the original.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private record StoreKey(String scope, String caller, String key) { }
+
+    private static final class Entry {
+        final String fingerprint;
+        final CompletableFuture<ResponseEntity<?>> response = new CompletableFuture<>();
+
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Cache<StoreKey, Entry> entries;
+    private final Duration inFlightTimeout;
+
+    public IdempotencyService(ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${idempotency.maximum-size:10000}") long maximumSize,
+                              @Value("${idempotency.ttl:PT24H}") Duration ttl,
+                              @Value("${idempotency.in-flight-timeout:PT30S}") Duration inFlightTimeout) {
+        this.objectMapper = objectMapper;
+        this.inFlightTimeout = inFlightTimeout;
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "idempotency");
+    }
+
+    /**
+     * Runs {@code action} at most once per {@code scope}, caller and {@code key}.
+     * Without a key the action simply runs.
+     *
+     * @param request the request body, used to detect a key reused for a different request
+     */
+    public ResponseEntity<?> execute(String scope, String key, Object request, Supplier<ResponseEntity<?>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters"));
+        }
+
+        String fingerprint = fingerprint(request);
+        StoreKey storeKey = new StoreKey(scope, caller(), key);
+
+        while (true) {
+            Entry mine = new Entry(fingerprint);
+            Entry existing = entries.asMap().putIfAbsent(storeKey, mine);
+            if (existing == null) {
+                return runAndStore(storeKey, mine, action);
+            }
+
+            if (!existing.fingerprint.equals(fingerprint)) {
+                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                        .body(Map.of("error", HEADER + " was already used for a different request"));
+            }
+
+            try {
+                return replay(existing.response.get(inFlightTimeout.toMillis(), TimeUnit.MILLISECONDS));
+            } catch (ExecutionException e) {
+                // The first attempt failed and released the key; try to run it ourselves
+            } catch (TimeoutException e) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("error", "A request with this " + HEADER + " is still in progress"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .body(Map.of("error", "Interrupted while waiting for the original request"));
+            }
+        }
+    }
+
+    /**
+     * Asynchronous form of {@link #execute}, for actions that complete their
+     * response later. Retries of an in-flight request wait without holding a thread.
+     */
+    public CompletableFuture<ResponseEntity<?>> executeAsync(String scope, String key, Object request,
+                                                            Supplier<CompletableFuture<ResponseEntity<?>>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(Map.of("error", HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters")));
+        }
+        return executeAsync(new StoreKey(scope, caller(), key), fingerprint(request), action);
+    }
+
+    private CompletableFuture<ResponseEntity<?>> executeAsync(StoreKey storeKey, String fingerprint,
+                                                             Supplier<CompletableFuture<ResponseEntity<?>>> action) {
+        Entry mine = new Entry(fingerprint);
+        Entry existing = entries.asMap().putIfAbsent(storeKey, mine);
+        if (existing == null) {
+            return runAndStoreAsync(storeKey, mine, action);
+        }
+
+        if (!existing.fingerprint.equals(fingerprint)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .body(Map.of("error", HEADER + " was already used for a different request")));
+        }
+
+        // A copy, so the timeout applies to this waiter only
+        return existing.response.copy()
+                .orTimeout(inFlightTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .handle((stored, failure) -> {
+                    if (failure == null) {
+                        return CompletableFuture.<ResponseEntity<?>>completedFuture(replay(stored));
+                    }
+                    if (failure instanceof TimeoutException || failure.getCause() instanceof TimeoutException) {
+                        return CompletableFuture.<ResponseEntity<?>>completedFuture(
+                                ResponseEntity.status(HttpStatus.CONFLICT)
+                                        .body(Map.of("error", "A request with this " + HEADER + " is still in progress")));
+                    }
+                    // The first attempt failed and released the key; try to run it ourselves
+                    return executeAsync(storeKey, fingerprint, action);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<ResponseEntity<?>> runAndStoreAsync(StoreKey storeKey, Entry entry,
+                                                                 Supplier<CompletableFuture<ResponseEntity<?>>> action) {
+        CompletableFuture<ResponseEntity<?>> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            release(storeKey, entry, e);
+            throw e;
+        }
+
+        return response.whenComplete((result, failure) -> {
+            if (failure != null) {
+                release(storeKey, entry, failure instanceof Exception e ? e : new IllegalStateException(failure));
+            } else if (result.getStatusCode().is5xxServerError()) {
+                release(storeKey, entry, new IllegalStateException("Original request failed"));
+            } else {
+                entry.response.complete(result);
+            }
+        });
+    }
+
+    private ResponseEntity<?> runAndStore(StoreKey storeKey, Entry entry, Supplier<ResponseEntity<?>> action) {
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            release(storeKey, entry, e);
+            throw e;
+        }
+
+        if (response.getStatusCode().is5xxServerError()) {
+            release(storeKey, entry, new IllegalStateException("Original request failed"));
+        } else {
+            entry.response.complete(response);
+        }
+        return response;
+    }
+
+    // Remove before failing the future so waiters that retry find the key free
+    private void release(StoreKey storeKey, Entry entry, Exception cause) {
+        entries.asMap().remove(storeKey, entry);
+        entry.response.completeExceptionally(cause);
+    }
+
+    // Read on the request thread, before any action hands off to another one
+    private static String caller() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return authentication.getPrincipal() instanceof User user && user.getId() != null
+                    ? "user:" + user.getId()
+                    : "user:" + authentication.getName();
+        }
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            return "ip:" + attributes.getRequest().getRemoteAddr();
+        }
+        return "anonymous";
+    }
+
+    private static ResponseEntity<?> replay(ResponseEntity<?> stored) {
+        return ResponseEntity.status(stored.getStatusCode())
+                .headers(stored.getHeaders())
+                .header(REPLAYED_HEADER, "true")
+                .body(stored.getBody());
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot fingerprint request", e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.product_demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing and verification off the request threads, on a pool
+ * with one thread per CPU and a bounded queue.
+ * <p>
+ * BCrypt is pure CPU work, so more threads than cores would only add context
+ * switches, and an unbounded queue would only add latency. When the pool and
+ * queue are full, {@link #submit} fails at once with a
+ * {@link RejectedExecutionException}, for the caller to answer 503. A login
+ * storm therefore costs at most the CPUs given to this pool, and the rest of
+ * the application stays responsive.
+ * <p>
+ * Tasks must be the hashing alone. A user lookup, insert or token write queued
+ * here would hold a hashing thread idle on the database, so callers run that
+ * work before submitting and continue on another executor afterwards.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final Counter rejected;
+
+    public PasswordHashingExecutor(MeterRegistry meterRegistry,
+                                   @Value("${auth.password-hashing.threads:0}") int threads,
+                                   @Value("${auth.password-hashing.queue-capacity:64}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.rejected = Counter.builder("auth.password.hashing.rejected")
+                .description("Credential operations refused because the hashing pool was full")
+                .register(meterRegistry);
+        ExecutorServiceMetrics.monitor(meterRegistry, executor, "password-hashing");
+    }
+
+    /**
+     * Queues {@code task}, which should only hash or verify a password, on the
+     * hashing pool.
+     *
+     * @throws RejectedExecutionException if the pool and its queue are full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.product_demo.service;
+
+import org.example.product_demo.model.Product;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Per-item outcome of a bulk product upsert. Items are reported in the order
+ * they appeared in the request body.
+ */
+public class ProductBulkResult {
+
+    public enum Status { CREATED, UPDATED, NOT_FOUND, FAILED }
+
+    public static class Item {
+        private final int index;
+        private final Long id;
+        private final Status status;
+        private final String error;
+        // The written entity, kept for post-commit bookkeeping; not part of the report
+        private final Product product;
+
+        Item(int index, Long id, Status status, String error) {
+            this(index, id, status, error, null);
+        }
+
+        Item(int index, Long id, Status status, String error, Product product) {
+            this.index = index;
+            this.id = id;
+            this.status = status;
+            this.error = error;
+            this.product = product;
+        }
+
+        Product product() { return product; }
+
+        public int getIndex() { return index; }
+        public Long getId() { return id; }
+        public Status getStatus() { return status; }
+        public String getError() { return error; }
+    }
+
+    private final List<Item> items = new ArrayList<>();
+    private int created;
+    private int updated;
+    private int failed;
+    private String error;
+
+    void add(Item item) {
+        items.add(item);
+        switch (item.getStatus()) {
+            case CREATED -> created++;
+            case UPDATED -> updated++;
+            default -> failed++;
+        }
+    }
+
+    void setError(String error) { this.error = error; }
+
+    int size() { return items.size(); }
+
+    public List<Item> getItems() { return Collections.unmodifiableList(items); }
+    public int getCreated() { return created; }
+    public int getUpdated() { return updated; }
+    public int getFailed() { return failed; }
+    public String getError() { return error; }
+}
@@ -0,0 +1,110 @@
+package org.example.product_demo.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.product_demo.config.ReadRouting;
+import org.example.product_demo.model.Product;
+import org.example.product_demo.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Bounded read-through cache in front of {@link ProductRepository#findById}.
+ * <p>
+ * Entries are evicted by size and by time since write, and invalidated by every
+ * {@link ProductChangeEvent}, which writers publish after their change has
+ * committed. An invalidation discards any load of the same id that is in
+ * flight, so a stale row read concurrently with the write is never cached.
+ * Cached products are shared between requests and must be treated as read-only.
+ * <p>
+ * Concurrent misses for one id share a single load. The load runs on the
+ * calling thread but outside the cache's internal locks, so a virtual thread
+ * blocked on JDBC does not pin its carrier.
+ */
+@Component
+public class ProductCache {
+
+    private final ProductRepository productRepository;
+    private final AsyncCache<Long, Product> cache;
+
+    public ProductCache(ProductRepository productRepository,
+                        MeterRegistry meterRegistry,
+                        @Value("${product.cache.maximum-size:10000}") long maximumSize,
+                        @Value("${product.cache.ttl:PT10M}") Duration ttl) {
+        this.productRepository = productRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "products");
+    }
+
+    public Optional<Product> findById(Long id) {
+        CompletableFuture<Product> load = new CompletableFuture<>();
+        CompletableFuture<Product> future = cache.get(id, (key, executor) -> load);
+        if (future == load) {
+            // Misses that find no row are not cached, so a later insert is visible at once.
+            // Loads go to the primary: a lagging replica could repopulate an entry a write just invalidated.
+            try {
+                load.complete(ReadRouting.onPrimary(() -> productRepository.findById(id).orElse(null)));
+            } catch (RuntimeException e) {
+                load.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return Optional.ofNullable(future.join());
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * Returns the cached product without touching the database on a miss or
+     * waiting for a load in flight.
+     */
+    public Optional<Product> peek(Long id) {
+        CompletableFuture<Product> future = cache.getIfPresent(id);
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(future.join());
+    }
+
+    public void invalidate(Long id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        invalidate(event.getProductId());
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.synchronous().stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.synchronous().estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("averageLoadPenaltyNanos", stats.averageLoadPenalty());
+        return result;
+    }
+}
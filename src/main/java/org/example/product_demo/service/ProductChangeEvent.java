@@ -0,0 +1,48 @@
+package org.example.product_demo.service;
+
+import org.example.product_demo.model.Product;
+
+import java.util.Objects;
+
+/**
+ * Published after a product write has committed. Listeners run synchronously on
+ * the writing thread, so anything they invalidate is gone before the response
+ * is sent.
+ */
+public class ProductChangeEvent {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private final Type type;
+    private final Long productId;
+    private final Product product;
+
+    private ProductChangeEvent(Type type, Long productId, Product product) {
+        this.type = type;
+        this.productId = productId;
+        this.product = product;
+    }
+
+    public static ProductChangeEvent created(Product product) {
+        Objects.requireNonNull(product, "created event needs the written product");
+        return new ProductChangeEvent(Type.CREATED, product.getId(), product);
+    }
+
+    // Listeners index and cache the product itself, so it must be the entity as written
+    public static ProductChangeEvent updated(Product product) {
+        Objects.requireNonNull(product, "updated event needs the written product");
+        return new ProductChangeEvent(Type.UPDATED, product.getId(), product);
+    }
+
+    public static ProductChangeEvent deleted(Long productId) {
+        return new ProductChangeEvent(Type.DELETED, productId, null);
+    }
+
+    public Type getType() { return type; }
+    public Long getProductId() { return productId; }
+
+    /**
+     * The product as written, or {@code null} for deletions.
+     */
+    public Product getProduct() { return product; }
+}
@@ -0,0 +1,45 @@
+package org.example.product_demo.service;
+
+import org.example.product_demo.model.Product;
+
+import java.util.List;
+
+/**
+ * Products written and ids deleted after a sync watermark. Clients apply both and
+ * pass {@code watermark} as {@code since} next time; while {@code hasMore} is set
+ * they should ask again straight away.
+ * <p>
+ * {@code resync} means the deletes after {@code since} have been purged: the
+ * client drops its copy, reloads the full listing and continues from the
+ * {@code watermark} given here.
+ */
+public class ProductChanges {
+    private final List<Product> updated;
+    private final List<Long> deleted;
+    private final long watermark;
+    private final boolean hasMore;
+    private final boolean resync;
+
+    public ProductChanges(List<Product> updated, List<Long> deleted, long watermark, boolean hasMore) {
+        this(updated, deleted, watermark, hasMore, false);
+    }
+
+    private ProductChanges(List<Product> updated, List<Long> deleted, long watermark, boolean hasMore,
+                           boolean resync) {
+        this.updated = updated;
+        this.deleted = deleted;
+        this.watermark = watermark;
+        this.hasMore = hasMore;
+        this.resync = resync;
+    }
+
+    public static ProductChanges resync(long watermark) {
+        return new ProductChanges(List.of(), List.of(), watermark, false, true);
+    }
+
+    public List<Product> getUpdated() { return updated; }
+    public List<Long> getDeleted() { return deleted; }
+    public long getWatermark() { return watermark; }
+    public boolean isHasMore() { return hasMore; }
+    public boolean isResync() { return resync; }
+}
@@ -0,0 +1,118 @@
+package org.example.product_demo.service;
+
+import org.example.product_demo.exception.BadRequestException;
+import org.example.product_demo.model.Product;
+import org.example.product_demo.model.ProductSummary;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * Opaque continuation token for keyset pagination over the products table.
+ * <p>
+ * The token carries the sort key, the direction and the position of the last
+ * row of the previous page, so a client can only ever continue the listing it
+ * started. Tokens are URL-safe Base64 and are not meant to be parsed by clients.
+ */
+public final class ProductCursor {
+
+    public enum SortKey {
+        ID("id"), PRICE("price"), NAME("name");
+
+        private final String property;
+
+        SortKey(String property) {
+            this.property = property;
+        }
+
+        public String getProperty() { return property; }
+
+        public static SortKey from(String value) {
+            if (value == null || value.isEmpty()) {
+                return ID;
+            }
+            try {
+                return SortKey.valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("Unsupported sort key: " + value);
+            }
+        }
+    }
+
+    private static final char SEPARATOR = ':';
+    private static final char NULL_MARKER = 'n';
+    private static final char VALUE_MARKER = 'v';
+
+    private final SortKey sortKey;
+    private final boolean descending;
+    private final Long id;
+    private final Object value;
+
+    private ProductCursor(SortKey sortKey, boolean descending, Long id, Object value) {
+        this.sortKey = sortKey;
+        this.descending = descending;
+        this.id = id;
+        this.value = value;
+    }
+
+    public static ProductCursor after(Product last, SortKey sortKey, boolean descending) {
+        return after(last.getId(), last.getName(), last.getPrice(), sortKey, descending);
+    }
+
+    public static ProductCursor after(ProductSummary last, SortKey sortKey, boolean descending) {
+        return after(last.getId(), last.getName(), last.getPrice(), sortKey, descending);
+    }
+
+    private static ProductCursor after(Long id, String name, Double price, SortKey sortKey, boolean descending) {
+        Object value = switch (sortKey) {
+            case ID -> null;
+            case PRICE -> price;
+            case NAME -> name;
+        };
+        return new ProductCursor(sortKey, descending, id, value);
+    }
+
+    public SortKey getSortKey() { return sortKey; }
+    public boolean isDescending() { return descending; }
+    public Long getId() { return id; }
+    public Object getValue() { return value; }
+
+    public String encode() {
+        StringBuilder sb = new StringBuilder()
+                .append(sortKey.name()).append(SEPARATOR)
+                .append(descending ? 'd' : 'a').append(SEPARATOR)
+                .append(id).append(SEPARATOR);
+        if (value == null) {
+            sb.append(NULL_MARKER);
+        } else {
+            sb.append(VALUE_MARKER).append(value);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // The value is last so names containing the separator survive the round trip
+            String[] parts = raw.split(String.valueOf(SEPARATOR), 4);
+            if (parts.length != 4 || parts[3].isEmpty()) {
+                throw new BadRequestException("Malformed cursor");
+            }
+
+            SortKey sortKey = SortKey.valueOf(parts[0]);
+            boolean descending = "d".equals(parts[1]);
+            Long id = Long.valueOf(parts[2]);
+
+            Object value = null;
+            if (parts[3].charAt(0) == VALUE_MARKER) {
+                String text = parts[3].substring(1);
+                value = sortKey == SortKey.PRICE ? Double.valueOf(text) : text;
+            }
+            return new ProductCursor(sortKey, descending, id, value);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Malformed cursor");
+        }
+    }
+}
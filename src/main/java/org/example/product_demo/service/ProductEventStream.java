@@ -0,0 +1,328 @@
+package org.example.product_demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Server-Sent Events feed of product changes, so clients can follow the catalog
+ * instead of polling it.
+ * <p>
+ * The thread that made a change only serializes it and hands it to a dispatcher
+ * thread, which numbers it into the replay ring and puts the frame in every
+ * subscriber's bounded outbox. A fixed pool of {@code product.events.sender-threads}
+ * senders drains the outboxes, each subscriber queued for a sender at most once,
+ * so thousands of idle subscribers cost an empty queue each and no thread.
+ * A subscriber whose outbox fills up is disconnected rather than buffered without
+ * limit, and so is one whose write has been stuck for longer than
+ * {@code product.events.send-timeout}, so nothing more is queued for it. The
+ * blocked write itself only ends when the container's write timeout
+ * ({@code server.tomcat.connection-timeout}) expires, and holds its sender until
+ * then; keep that timeout short, since stalled clients beyond the number of
+ * senders delay everyone else's frames meanwhile.
+ * <p>
+ * Browsers reconnect on their own and send {@code Last-Event-ID}, and the events
+ * they missed are replayed from a ring of recent ones; when they fall outside the
+ * ring the client gets a {@code resync} event and should reload the catalog.
+ */
+@Component
+public class ProductEventStream {
+
+    private static final Logger logger = Logger.getLogger(ProductEventStream.class.getName());
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final BlockingQueue<Set<DataWithMediaType>> queue;
+        final AtomicBoolean draining = new AtomicBoolean();
+        // System.nanoTime() when the write in progress started, or 0 between writes
+        volatile long sendingSince;
+        volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, int bufferSize) {
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        void offer(Set<DataWithMediaType> frame) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(frame)) {
+                droppedSubscribers.increment();
+                close();
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                Set<DataWithMediaType> frame;
+                while (!closed && (frame = queue.poll()) != null) {
+                    sendingSince = System.nanoTime();
+                    try {
+                        emitter.send(frame);
+                    } catch (IOException | IllegalStateException e) {
+                        // Client went away; the emitter callbacks may not fire for a broken pipe
+                        unsubscribe(this);
+                        return;
+                    } finally {
+                        sendingSince = 0;
+                    }
+                }
+                draining.set(false);
+                // Recheck: a frame offered after the poll above found nothing would otherwise sit unsent
+            } while (!closed && !queue.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        boolean stalled(long now) {
+            long since = sendingSince;
+            return since != 0 && now - since > sendTimeoutNanos;
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            subscribers.remove(this);
+            queue.clear();
+            // Completing waits for a write in progress on this client, so it must not hold up the caller
+            closer.execute(emitter::complete);
+        }
+    }
+
+    private static final Set<DataWithMediaType> CONNECTED = SseEmitter.event().comment("connected").build();
+    private static final Set<DataWithMediaType> RESYNC = SseEmitter.event().name("resync").data("{}").build();
+
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+
+    // Distinguishes event ids from a previous run, whose sequence numbers mean nothing now
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Counter droppedSubscribers;
+    private final Counter stalledSubscribers;
+
+    // ReentrantLock rather than synchronized: subscribe runs on request threads, which may be virtual.
+    // Guards the sequence, the ring, and joining subscribers.
+    private final ReentrantLock ringLock = new ReentrantLock();
+    private final Set<DataWithMediaType>[] ring;
+    private long sequence;
+
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-events-dispatch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService sender;
+    private final ExecutorService closer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-events-close");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-events-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ProductEventStream(ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${product.events.buffer-size:64}") int bufferSize,
+                              @Value("${product.events.replay-size:256}") int replaySize,
+                              @Value("${product.events.sender-threads:2}") int senderThreads,
+                              @Value("${product.events.timeout:PT30M}") Duration timeout,
+                              @Value("${product.events.heartbeat:PT25S}") Duration heartbeatInterval,
+                              @Value("${product.events.send-timeout:PT10S}") Duration sendTimeout) {
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeout.toMillis();
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        @SuppressWarnings("unchecked")
+        Set<DataWithMediaType>[] ring = new Set[replaySize];
+        this.ring = ring;
+        this.droppedSubscribers = Counter.builder("product.events.dropped")
+                .description("Subscribers disconnected for falling behind")
+                .register(meterRegistry);
+        this.stalledSubscribers = Counter.builder("product.events.stalled")
+                .description("Subscribers disconnected for a write that did not complete in time")
+                .register(meterRegistry);
+        meterRegistry.gauge("product.events.subscribers", subscribers, Set::size);
+
+        // Each subscriber is queued at most once while it has frames, so the queue is bounded by the subscribers
+        AtomicInteger threadCount = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "product-events-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Keeps proxies from closing idle connections and surfaces dead clients
+        Set<DataWithMediaType> ping = SseEmitter.event().comment("ping").build();
+        long interval = heartbeatInterval.toMillis();
+        heartbeat.scheduleAtFixedRate(() -> {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(ping);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+
+        long check = Math.max(1, sendTimeout.toMillis() / 2);
+        heartbeat.scheduleAtFixedRate(this::dropStalled, check, check, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens a stream, first replaying anything after {@code lastEventId} that is
+     * still in the ring.
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        return subscribe(lastEventId, new SseEmitter(timeoutMillis));
+    }
+
+    SseEmitter subscribe(String lastEventId, SseEmitter emitter) {
+        ringLock.lock();
+        try {
+            List<Set<DataWithMediaType>> missed = eventsAfter(lastEventId);
+            // The replay comes on top of the live buffer, so catching up never counts as falling behind
+            Subscriber subscriber = new Subscriber(emitter, bufferSize + 2 + (missed == null ? 0 : missed.size()));
+            emitter.onCompletion(() -> unsubscribe(subscriber));
+            emitter.onTimeout(() -> unsubscribe(subscriber));
+            emitter.onError(error -> unsubscribe(subscriber));
+
+            // Sends the response headers right away so the client sees the stream as open
+            subscriber.offer(CONNECTED);
+            if (missed == null) {
+                subscriber.offer(RESYNC);
+            } else {
+                for (Set<DataWithMediaType> frame : missed) {
+                    subscriber.offer(frame);
+                }
+            }
+            // Joined under the lock, so no event lands between the replay and the live feed
+            subscribers.add(subscriber);
+        } finally {
+            ringLock.unlock();
+        }
+        return emitter;
+    }
+
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        String data;
+        try {
+            data = event.getType() == ProductChangeEvent.Type.DELETED
+                    ? objectMapper.writeValueAsString(Map.of("id", event.getProductId()))
+                    : objectMapper.writeValueAsString(event.getProduct());
+        } catch (JsonProcessingException e) {
+            logger.warning("Could not serialize product event for " + event.getProductId() + ": " + e.getMessage());
+            return;
+        }
+
+        String name = event.getType().name().toLowerCase();
+        dispatcher.execute(() -> publish(name, data));
+    }
+
+    private void publish(String name, String data) {
+        ringLock.lock();
+        try {
+            long next = ++sequence;
+            Set<DataWithMediaType> frame = SseEmitter.event()
+                    .id(epoch + "-" + next)
+                    .name(name)
+                    .data(data)
+                    .build();
+            ring[(int) (next % ring.length)] = frame;
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(frame);
+            }
+        } finally {
+            ringLock.unlock();
+        }
+    }
+
+    /**
+     * Frames after the given id, or {@code null} if they are no longer all in the ring.
+     */
+    private List<Set<DataWithMediaType>> eventsAfter(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return List.of();
+        }
+
+        int dash = lastEventId.lastIndexOf('-');
+        if (dash < 0 || !lastEventId.substring(0, dash).equals(epoch)) {
+            return null;
+        }
+        long last;
+        try {
+            last = Long.parseLong(lastEventId.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        long oldest = Math.max(1, sequence - ring.length + 1);
+        if (last > sequence || last + 1 < oldest) {
+            return null;
+        }
+        List<Set<DataWithMediaType>> missed = new ArrayList<>((int) (sequence - last));
+        for (long s = last + 1; s <= sequence; s++) {
+            missed.add(ring[(int) (s % ring.length)]);
+        }
+        return missed;
+    }
+
+    private void dropStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.stalled(now)) {
+                stalledSubscribers.increment();
+                subscriber.close();
+            }
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.remove(subscriber);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        dispatcher.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+        sender.shutdownNow();
+        closer.shutdown();
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.product_demo.service;
+
+import java.util.List;
+
+/**
+ * Products fetched by id, in the order the ids were requested, holding products
+ * or summaries depending on the requested view. Ids with no product are listed
+ * in {@code missing}.
+ */
+public class ProductLookup {
+    private final List<?> items;
+    private final List<Long> missing;
+
+    public ProductLookup(List<?> items, List<Long> missing) {
+        this.items = items;
+        this.missing = missing;
+    }
+
+    public List<?> getItems() { return items; }
+    public List<Long> getMissing() { return missing; }
+}
@@ -0,0 +1,22 @@
+package org.example.product_demo.service;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated product listing, holding products or
+ * summaries depending on the requested view. {@code nextCursor} is
+ * {@code null} once the listing is exhausted.
+ */
+public class ProductPage {
+    private final List<?> items;
+    private final String nextCursor;
+
+    public ProductPage(List<?> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<?> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+    public int getSize() { return items.size(); }
+}
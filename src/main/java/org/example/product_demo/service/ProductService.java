@@ -0,0 +1,509 @@
+package org.example.product_demo.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import org.example.product_demo.exception.ApiException;
+import org.example.product_demo.exception.BadRequestException;
+import org.example.product_demo.exception.ResourceNotFoundException;
+import org.example.product_demo.model.Product;
+import org.example.product_demo.model.ProductSummary;
+import org.example.product_demo.model.ProductTombstone;
+import org.example.product_demo.repository.ProductChangeHorizonRepository;
+import org.example.product_demo.repository.ProductRepository;
+import org.example.product_demo.repository.ProductTombstoneRepository;
+import org.example.product_demo.service.ProductBulkResult.Item;
+import org.example.product_demo.service.ProductBulkResult.Status;
+import org.example.product_demo.service.ProductCursor.SortKey;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+@Service
+public class ProductService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // Rows written between explicit flushes of the export stream
+    private static final int EXPORT_FLUSH_INTERVAL = 500;
+
+    // Items applied per transaction by bulk upserts; stays below Oracle's 1000-element IN list limit
+    private static final int BULK_CHUNK_SIZE = 500;
+
+    public static final int MAX_LOOKUP_IDS = 500;
+
+    // Ids per IN list when looking products up by id
+    private static final int LOOKUP_CHUNK_SIZE = 100;
+
+    public static final int DEFAULT_CHANGES_LIMIT = 500;
+    public static final int MAX_CHANGES_LIMIT = 1000;
+
+    private final ProductRepository productRepository;
+    private final ProductTombstoneRepository tombstoneRepository;
+    private final ProductChangeHorizonRepository horizonRepository;
+    private final ProductCache productCache;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher events;
+    private final Duration changesSettleTime;
+
+    public ProductService(ProductRepository productRepository,
+                          ProductTombstoneRepository tombstoneRepository,
+                          ProductChangeHorizonRepository horizonRepository,
+                          ProductCache productCache,
+                          EntityManager entityManager,
+                          ObjectMapper objectMapper,
+                          PlatformTransactionManager transactionManager,
+                          ApplicationEventPublisher events,
+                          @Value("${product.changes.settle-time:PT5S}") Duration changesSettleTime) {
+        this.productRepository = productRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.horizonRepository = horizonRepository;
+        this.productCache = productCache;
+        this.events = events;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.changesSettleTime = changesSettleTime;
+    }
+
+    /**
+     * Returns one page of products using seek (keyset) pagination, so the cost of
+     * a page does not depend on how deep into the listing the client is.
+     * When {@code cursor} is given, its embedded sort key and direction win over
+     * {@code sort} and {@code direction}.
+     */
+    public ProductPage findPage(String sort, String direction, String cursor, Integer limit, ProductView view) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        ProductCursor after = cursor == null || cursor.isEmpty() ? null : ProductCursor.decode(cursor);
+        SortKey sortKey = after != null ? after.getSortKey() : SortKey.from(sort);
+        boolean descending = after != null ? after.isDescending() : isDescending(direction);
+
+        if (view == ProductView.SUMMARY) {
+            return findSummaryPage(sortKey, descending, after, pageSize);
+        }
+
+        // Fetch one extra row to find out whether another page exists
+        Limit fetch = Limit.of(pageSize + 1);
+        List<Product> rows = after == null
+                ? firstPage(sortKey, descending, fetch)
+                : nextPage(after, fetch);
+
+        if (rows.size() <= pageSize) {
+            return new ProductPage(rows, null);
+        }
+        List<Product> items = rows.subList(0, pageSize);
+        Product last = items.get(pageSize - 1);
+        return new ProductPage(items, ProductCursor.after(last, sortKey, descending).encode());
+    }
+
+    /**
+     * Fetches many products in one call. Cached products are used as they are;
+     * the rest are read with {@code IN} queries of at most {@value #LOOKUP_CHUNK_SIZE}
+     * ids. Items follow the order of {@code ids}, with repeats dropped.
+     */
+    public ProductLookup findByIds(List<Long> ids, ProductView view) {
+        if (ids.isEmpty() || ids.size() > MAX_LOOKUP_IDS) {
+            throw new BadRequestException("Between 1 and " + MAX_LOOKUP_IDS + " ids are required");
+        }
+
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        Map<Long, Product> found = new HashMap<>(requested.size() * 2);
+        List<Long> toLoad = new ArrayList<>();
+        for (Long id : requested) {
+            if (id == null) {
+                throw new BadRequestException("ids must not contain null");
+            }
+            productCache.peek(id).ifPresentOrElse(product -> found.put(id, product), () -> toLoad.add(id));
+        }
+
+        for (int from = 0; from < toLoad.size(); from += LOOKUP_CHUNK_SIZE) {
+            List<Long> chunk = toLoad.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, toLoad.size()));
+            for (Product product : productRepository.findAllById(chunk)) {
+                found.put(product.getId(), product);
+            }
+        }
+
+        List<Object> items = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : requested) {
+            Product product = found.get(id);
+            if (product == null) {
+                missing.add(id);
+            } else {
+                items.add(view == ProductView.SUMMARY ? ProductSummary.of(product) : product);
+            }
+        }
+        return new ProductLookup(items, missing);
+    }
+
+    private ProductPage findSummaryPage(SortKey sortKey, boolean descending, ProductCursor after, int pageSize) {
+        List<ProductSummary> rows = productRepository.findSummaryPage(sortKey.getProperty(), descending,
+                after == null ? null : after.getId(),
+                after == null ? null : after.getValue(),
+                pageSize + 1);
+
+        if (rows.size() <= pageSize) {
+            return new ProductPage(rows, null);
+        }
+        List<ProductSummary> items = rows.subList(0, pageSize);
+        ProductSummary last = items.get(pageSize - 1);
+        return new ProductPage(items, ProductCursor.after(last, sortKey, descending).encode());
+    }
+
+    private List<Product> firstPage(SortKey sortKey, boolean descending, Limit limit) {
+        return switch (sortKey) {
+            case ID -> descending
+                    ? productRepository.findFirstPageByIdDesc(limit)
+                    : productRepository.findFirstPageById(limit);
+            case PRICE -> descending
+                    ? productRepository.findFirstPageByPriceDesc(limit)
+                    : productRepository.findFirstPageByPrice(limit);
+            case NAME -> descending
+                    ? productRepository.findFirstPageByNameDesc(limit)
+                    : productRepository.findFirstPageByName(limit);
+        };
+    }
+
+    private List<Product> nextPage(ProductCursor after, Limit limit) {
+        Long id = after.getId();
+        boolean descending = after.isDescending();
+        Object value = after.getValue();
+
+        return switch (after.getSortKey()) {
+            case ID -> descending
+                    ? productRepository.findPageBeforeId(id, limit)
+                    : productRepository.findPageAfterId(id, limit);
+            case PRICE -> {
+                if (value == null) {
+                    yield descending
+                            ? productRepository.findPageBeforeNullPrice(id, limit)
+                            : productRepository.findPageAfterNullPrice(id, limit);
+                }
+                yield descending
+                        ? productRepository.findPageBeforePrice((Double) value, id, limit)
+                        : productRepository.findPageAfterPrice((Double) value, id, limit);
+            }
+            case NAME -> {
+                if (value == null) {
+                    yield descending
+                            ? productRepository.findPageBeforeNullName(id, limit)
+                            : productRepository.findPageAfterNullName(id, limit);
+                }
+                yield descending
+                        ? productRepository.findPageBeforeName((String) value, id, limit)
+                        : productRepository.findPageAfterName((String) value, id, limit);
+            }
+        };
+    }
+
+    private static boolean isDescending(String direction) {
+        if (direction == null || direction.isEmpty() || direction.equalsIgnoreCase("asc")) {
+            return false;
+        }
+        if (direction.equalsIgnoreCase("desc")) {
+            return true;
+        }
+        throw new BadRequestException("direction must be 'asc' or 'desc'");
+    }
+
+    /**
+     * Writes the whole catalog to {@code out} as newline-delimited JSON, one product
+     * per line, ordered by id. Rows are read through a database cursor and detached
+     * once written, so memory use does not grow with the size of the table.
+     *
+     * @return the number of products written
+     */
+    @Transactional(readOnly = true)
+    public long exportNdjson(OutputStream out) throws IOException {
+        // Flushing is driven below instead of after every row
+        ObjectWriter writer = objectMapper.writerFor(Product.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        long count = 0;
+        try (Stream<Product> products = productRepository.streamAllOrderById();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+
+            Iterator<Product> it = products.iterator();
+            while (it.hasNext()) {
+                Product product = it.next();
+                writer.writeValue(generator, product);
+                entityManager.detach(product);
+
+                // Flush the first row right away so the client sees bytes immediately
+                if (++count == 1 || count % EXPORT_FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+            if (count > 0) {
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+        }
+        return count;
+    }
+
+    /**
+     * Products created, updated or deleted after the {@code since} watermark, oldest
+     * change first and at most {@code limit} changes in total. Both lookups are
+     * range scans on a change_seq index, so a sync costs what changed rather than
+     * the size of the catalog.
+     * <p>
+     * change_seq is drawn when a row is written, not when it commits, so a write can
+     * become visible after one with a higher number. The feed therefore stops at the
+     * first change younger than {@code product.changes.settle-time}; the watermark
+     * never passes a number whose transaction may still be open, as long as writes
+     * commit within that time. A {@code since} older than the purged tombstones
+     * gets a resync instead.
+     */
+    @Transactional(readOnly = true)
+    public ProductChanges findChanges(long since, Integer limit) {
+        int maxChanges = limit == null ? DEFAULT_CHANGES_LIMIT : limit;
+        if (maxChanges < 1 || maxChanges > MAX_CHANGES_LIMIT) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_CHANGES_LIMIT);
+        }
+        if (since < 0) {
+            throw new BadRequestException("since must not be negative");
+        }
+
+        // A client starting from 0 has nothing to delete, so only later watermarks can have missed tombstones
+        long purgedThrough = horizonRepository.findPurgedThrough().orElse(0L);
+        if (since > 0 && since < purgedThrough) {
+            return ProductChanges.resync(purgedThrough);
+        }
+
+        Instant settled = Instant.now().minus(changesSettleTime);
+        List<Product> products = productRepository.findChangedSince(since, Limit.of(maxChanges + 1));
+        List<ProductTombstone> tombstones = tombstoneRepository.findChangedSince(since, Limit.of(maxChanges + 1));
+
+        // Merge the two ordered lists; each holds more than a page, so the first page of the union is in them
+        List<Product> updated = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        int p = 0;
+        int t = 0;
+        long watermark = since;
+        boolean settling = false;
+        while (p + t < maxChanges && (p < products.size() || t < tombstones.size())) {
+            long productSeq = p < products.size() ? products.get(p).getChangeSeq() : Long.MAX_VALUE;
+            long tombstoneSeq = t < tombstones.size() ? tombstones.get(t).getChangeSeq() : Long.MAX_VALUE;
+            Instant changedAt = productSeq < tombstoneSeq
+                    ? products.get(p).getUpdatedAt()
+                    : tombstones.get(t).getDeletedAt();
+            if (changedAt != null && changedAt.isAfter(settled)) {
+                settling = true;
+                break;
+            }
+            if (productSeq < tombstoneSeq) {
+                updated.add(products.get(p++));
+                watermark = productSeq;
+            } else {
+                deleted.add(tombstones.get(t++).getProductId());
+                watermark = tombstoneSeq;
+            }
+        }
+        // Unsettled changes are picked up by the next regular sync, not by asking again at once
+        boolean hasMore = !settling && (p < products.size() || t < tombstones.size());
+        return new ProductChanges(updated, deleted, watermark, hasMore);
+    }
+
+    /**
+     * Deletes a product and records its tombstone for delta sync in the same
+     * transaction.
+     *
+     * @return whether the product existed
+     */
+    public boolean delete(Long id) {
+        boolean deleted = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (productRepository.deleteProductById(id) == 0) {
+                return false;
+            }
+            tombstoneRepository.insertTombstone(id, Instant.now());
+            return true;
+        }));
+        if (deleted) {
+            events.publishEvent(ProductChangeEvent.deleted(id));
+        }
+        return deleted;
+    }
+
+    /**
+     * Applies a partial update with one targeted statement and no read beforehand.
+     * Only the properties present in {@code changes} are written; a property
+     * explicitly set to {@code null} clears the column.
+     *
+     * @param expectedVersion version the client last saw, or {@code null} to update unconditionally
+     */
+    public Product patch(Long id, Map<String, Object> changes, Long expectedVersion) {
+        if (changes == null || changes.isEmpty()) {
+            throw new BadRequestException("No properties to update");
+        }
+
+        Map<String, Object> values = new HashMap<>();
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            String property = change.getKey();
+            Object value = change.getValue();
+            if (!ProductRepository.PATCHABLE_COLUMNS.containsKey(property)) {
+                throw new BadRequestException("Property cannot be patched: " + property);
+            }
+            if (property.equals("price")) {
+                if (value != null && !(value instanceof Number)) {
+                    throw new BadRequestException("price must be a number");
+                }
+                values.put(property, value == null ? null : ((Number) value).doubleValue());
+            } else {
+                if (value != null && !(value instanceof String)) {
+                    throw new BadRequestException(property + " must be a string");
+                }
+                values.put(property, value);
+            }
+        }
+
+        Optional<Product> patched = productRepository.patch(id, values, expectedVersion);
+        if (patched.isEmpty()) {
+            // Only the failure path pays for telling "missing" from "changed underneath"
+            if (expectedVersion != null && productRepository.findVersionById(id).isPresent()) {
+                throw new ApiException("Product was modified by another request", HttpStatus.PRECONDITION_FAILED);
+            }
+            throw new ResourceNotFoundException("Product not found");
+        }
+
+        Product product = patched.get();
+        events.publishEvent(ProductChangeEvent.updated(product));
+        return product;
+    }
+
+    /**
+     * Creates or updates products read from {@code body}, which may hold either a JSON
+     * array or newline-delimited JSON objects. Items without an id are inserted and
+     * items with an id overwrite the existing row, like {@code PUT}.
+     * <p>
+     * The body is consumed incrementally and applied in chunks of
+     * {@value #BULK_CHUNK_SIZE}, each in its own transaction, so Hibernate can send the
+     * writes as JDBC batches. A failing chunk is rolled back and its items are
+     * reported as failed; chunks committed before it are kept.
+     */
+    public ProductBulkResult bulkUpsert(InputStream body) throws IOException {
+        ProductBulkResult result = new ProductBulkResult();
+        List<Product> chunk = new ArrayList<>(BULK_CHUNK_SIZE);
+
+        try (MappingIterator<Product> it = objectMapper.readerFor(Product.class).readValues(body)) {
+            while (it.hasNextValue()) {
+                chunk.add(it.nextValue());
+                if (chunk.size() == BULK_CHUNK_SIZE) {
+                    applyChunk(chunk, result);
+                    chunk.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            // Keep what was already parsed, then stop at the malformed item
+            applyChunk(chunk, result);
+            result.setError("Malformed product at index " + result.size() + ": " + e.getOriginalMessage());
+            return result;
+        }
+
+        applyChunk(chunk, result);
+        return result;
+    }
+
+    private void applyChunk(List<Product> chunk, ProductBulkResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        int offset = result.size();
+        List<Item> items;
+        try {
+            items = transactionTemplate.execute(status -> writeChunk(chunk, offset));
+        } catch (RuntimeException e) {
+            items = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                items.add(new Item(offset + i, chunk.get(i).getId(), Status.FAILED, e.getMessage()));
+            }
+        }
+
+        for (Item item : items) {
+            if (item.getStatus() == Status.CREATED) {
+                events.publishEvent(ProductChangeEvent.created(item.product()));
+            } else if (item.getStatus() == Status.UPDATED) {
+                events.publishEvent(ProductChangeEvent.updated(item.product()));
+            }
+            result.add(item);
+        }
+    }
+
+    private List<Item> writeChunk(List<Product> chunk, int offset) {
+        // Load every row the chunk updates with a single IN query
+        Set<Long> ids = new HashSet<>();
+        for (Product product : chunk) {
+            if (product.getId() != null) {
+                ids.add(product.getId());
+            }
+        }
+        Map<Long, Product> existing = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Product product : productRepository.findAllById(ids)) {
+                existing.put(product.getId(), product);
+            }
+        }
+
+        List<Item> items = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            Product incoming = chunk.get(i);
+            if (incoming.getId() == null) {
+                entityManager.persist(incoming);
+                items.add(new Item(offset + i, incoming.getId(), Status.CREATED, null, incoming));
+                continue;
+            }
+
+            Product target = existing.get(incoming.getId());
+            if (target == null) {
+                items.add(new Item(offset + i, incoming.getId(), Status.NOT_FOUND, "Product not found"));
+                continue;
+            }
+            target.setName(incoming.getName());
+            target.setDescription(incoming.getDescription());
+            target.setPrice(incoming.getPrice());
+            target.setImageUrl(incoming.getImageUrl());
+            items.add(new Item(offset + i, target.getId(), Status.UPDATED, null, target));
+        }
+
+        // Send the batched inserts and updates, then drop the chunk from the persistence context
+        entityManager.flush();
+        entityManager.clear();
+        return items;
+    }
+}
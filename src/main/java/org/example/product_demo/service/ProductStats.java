@@ -0,0 +1,421 @@
+package org.example.product_demo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.product_demo.config.ReadRouting;
+import org.example.product_demo.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Catalog price statistics kept in memory and updated as products change, so
+ * reading them costs nothing like a full-table aggregate.
+ * <p>
+ * Change events carry the new price only, so undoing an update or delete needs
+ * the price the product had before: the aggregate keeps an open-addressing table
+ * of product id to last price in two primitive arrays, 21 to 43 bytes a product
+ * depending on how full the table is. The product count is its size; sum and
+ * histogram are primitive counters. Min and max are tracked as prices are added
+ * and recomputed with a scan of the table only after the product holding one of
+ * them is repriced or deleted.
+ * <p>
+ * The whole aggregate is built from the database once the application is ready,
+ * and {@link #snapshot()} has nothing to return until then. It is rebuilt every
+ * {@code product.stats.reconcile-interval}, which corrects any drift from writes
+ * made outside this application.
+ */
+@Component
+public class ProductStats {
+
+    private static final Logger logger = Logger.getLogger(ProductStats.class.getName());
+
+    /**
+     * Product id to last known price, as linear-probing arrays so a large catalog
+     * costs no boxed entries. Ids are database ids and never {@link #EMPTY}; an
+     * unpriced product is stored as NaN.
+     */
+    private static final class PriceTable {
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        private long[] ids;
+        private double[] prices;
+        private int size;
+
+        PriceTable() {
+            allocate(1024);
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Stores {@code price} for {@code id} and returns the previous price, NaN for
+         * an unpriced product, or {@code null} if the product was not in the table.
+         */
+        Double put(long id, double price) {
+            int slot = slotOf(id);
+            if (ids[slot] == id) {
+                double previous = prices[slot];
+                prices[slot] = price;
+                return previous;
+            }
+            ids[slot] = id;
+            prices[slot] = price;
+            if (++size > ids.length * 3 / 4) {
+                grow();
+            }
+            return null;
+        }
+
+        /**
+         * Removes {@code id} and returns its price as {@link #put} does.
+         */
+        Double remove(long id) {
+            int slot = slotOf(id);
+            if (ids[slot] != id) {
+                return null;
+            }
+            double previous = prices[slot];
+            size--;
+            // Shift later entries of the probe run back, so lookups never stop at the hole
+            int mask = ids.length - 1;
+            int hole = slot;
+            for (int next = (hole + 1) & mask; ids[next] != EMPTY; next = (next + 1) & mask) {
+                int home = hash(ids[next]) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    ids[hole] = ids[next];
+                    prices[hole] = prices[next];
+                    hole = next;
+                }
+            }
+            ids[hole] = EMPTY;
+            return previous;
+        }
+
+        double min() {
+            double min = Double.NaN;
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] != EMPTY && !Double.isNaN(prices[i]) && !(prices[i] >= min)) {
+                    min = prices[i];
+                }
+            }
+            return min;
+        }
+
+        double max() {
+            double max = Double.NaN;
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] != EMPTY && !Double.isNaN(prices[i]) && !(prices[i] <= max)) {
+                    max = prices[i];
+                }
+            }
+            return max;
+        }
+
+        private int slotOf(long id) {
+            int mask = ids.length - 1;
+            int slot = hash(id) & mask;
+            while (ids[slot] != EMPTY && ids[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            long[] oldIds = ids;
+            double[] oldPrices = prices;
+            allocate(oldIds.length * 2);
+            for (int i = 0; i < oldIds.length; i++) {
+                if (oldIds[i] != EMPTY) {
+                    int slot = slotOf(oldIds[i]);
+                    ids[slot] = oldIds[i];
+                    prices[slot] = oldPrices[i];
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            ids = new long[capacity];
+            Arrays.fill(ids, EMPTY);
+            prices = new double[capacity];
+        }
+
+        private static int hash(long id) {
+            // Sequential ids would otherwise fill runs of adjacent slots
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    /**
+     * Mutable aggregate; only touched while holding the {@link ProductStats} monitor.
+     */
+    private static final class Aggregate {
+        // Last known price per product, to undo it on update or delete
+        final PriceTable prices = new PriceTable();
+        final long[] histogram;
+        long pricedCount;
+        // Adds and subtracts accumulate rounding error; reconciling starts it from zero again
+        double priceSum;
+        // NaN while no product is priced; stale once the product holding one was repriced or deleted
+        double minPrice = Double.NaN;
+        double maxPrice = Double.NaN;
+        boolean boundsStale;
+
+        Aggregate(int buckets) {
+            this.histogram = new long[buckets];
+        }
+
+        void put(long id, double price, double[] boundaries) {
+            Double previous = prices.put(id, price);
+            if (previous != null) {
+                if (Double.compare(previous, price) == 0) {
+                    return;
+                }
+                removePrice(previous, boundaries);
+            }
+            addPrice(price, boundaries);
+        }
+
+        void remove(long id, double[] boundaries) {
+            Double previous = prices.remove(id);
+            if (previous != null) {
+                removePrice(previous, boundaries);
+            }
+        }
+
+        double minPrice() {
+            refreshBounds();
+            return minPrice;
+        }
+
+        double maxPrice() {
+            refreshBounds();
+            return maxPrice;
+        }
+
+        private void refreshBounds() {
+            if (boundsStale) {
+                minPrice = prices.min();
+                maxPrice = prices.max();
+                boundsStale = false;
+            }
+        }
+
+        private void addPrice(double price, double[] boundaries) {
+            if (Double.isNaN(price)) {
+                return;
+            }
+            pricedCount++;
+            priceSum += price;
+            histogram[bucketOf(price, boundaries)]++;
+            if (!boundsStale) {
+                if (!(price >= minPrice)) {
+                    minPrice = price;
+                }
+                if (!(price <= maxPrice)) {
+                    maxPrice = price;
+                }
+            }
+        }
+
+        private void removePrice(double price, double[] boundaries) {
+            if (Double.isNaN(price)) {
+                return;
+            }
+            pricedCount--;
+            priceSum -= price;
+            histogram[bucketOf(price, boundaries)]--;
+            if (price == minPrice || price == maxPrice) {
+                boundsStale = true;
+            }
+        }
+    }
+
+    private static final class Change {
+        final long productId;
+        final double price;
+        final boolean deleted;
+
+        Change(long productId, double price, boolean deleted) {
+            this.productId = productId;
+            this.price = price;
+            this.deleted = deleted;
+        }
+
+        void applyTo(Aggregate aggregate, double[] boundaries) {
+            if (deleted) {
+                aggregate.remove(productId, boundaries);
+            } else {
+                aggregate.put(productId, price, boundaries);
+            }
+        }
+    }
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final double[] boundaries;
+
+    private final ScheduledExecutorService reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-stats");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Duration reconcileInterval;
+
+    // Guarded by "this"
+    private Aggregate aggregate;
+    private List<Change> changedDuringReconcile;
+    private Instant reconciledAt;
+
+    public ProductStats(ProductRepository productRepository,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${product.stats.bucket-boundaries:10,25,50,100,250,500,1000}") double[] boundaries,
+                        @Value("${product.stats.reconcile-interval:PT10M}") Duration reconcileInterval) {
+        this.productRepository = productRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.boundaries = boundaries.clone();
+        Arrays.sort(this.boundaries);
+        this.reconcileInterval = reconcileInterval;
+        this.aggregate = new Aggregate(this.boundaries.length + 1);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        long interval = reconcileInterval.toMillis();
+        reconciler.scheduleWithFixedDelay(this::reconcile, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        Change change = event.getType() == ProductChangeEvent.Type.DELETED
+                ? new Change(event.getProductId(), Double.NaN, true)
+                : new Change(event.getProductId(), priceOf(event.getProduct().getPrice()), false);
+
+        synchronized (this) {
+            change.applyTo(aggregate, boundaries);
+            if (changedDuringReconcile != null) {
+                changedDuringReconcile.add(change);
+            }
+        }
+    }
+
+    /**
+     * Current statistics: product count, price min/max/average over priced
+     * products, and the number of products per price bucket; {@code null} until
+     * the aggregate has been built from the database for the first time.
+     */
+    public Map<String, Object> snapshot() {
+        long count;
+        long pricedCount;
+        double priceSum;
+        double min;
+        double max;
+        long[] histogram;
+        Instant asOf;
+        synchronized (this) {
+            if (reconciledAt == null) {
+                return null;
+            }
+            count = aggregate.prices.size();
+            pricedCount = aggregate.pricedCount;
+            priceSum = aggregate.priceSum;
+            min = aggregate.minPrice();
+            max = aggregate.maxPrice();
+            histogram = aggregate.histogram.clone();
+            asOf = reconciledAt;
+        }
+
+        List<Map<String, Object>> buckets = new ArrayList<>(histogram.length);
+        for (int i = 0; i < histogram.length; i++) {
+            Map<String, Object> bucket = new LinkedHashMap<>();
+            bucket.put("from", i == 0 ? null : boundaries[i - 1]);
+            bucket.put("to", i == boundaries.length ? null : boundaries[i]);
+            bucket.put("count", histogram[i]);
+            buckets.add(bucket);
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", count);
+        stats.put("pricedCount", pricedCount);
+        stats.put("minPrice", Double.isNaN(min) ? null : min);
+        stats.put("maxPrice", Double.isNaN(max) ? null : max);
+        stats.put("avgPrice", pricedCount == 0 ? null : priceSum / pricedCount);
+        stats.put("histogram", buckets);
+        stats.put("reconciledAt", asOf);
+        return stats;
+    }
+
+    /**
+     * Rebuilds the aggregate from the database. Changes published while the rows
+     * are being read are applied to the old aggregate as usual and replayed onto
+     * the new one; they are idempotent, so seeing one twice is harmless.
+     */
+    public void reconcile() {
+        synchronized (this) {
+            changedDuringReconcile = new ArrayList<>();
+        }
+        try {
+            Aggregate rebuilt = new Aggregate(boundaries.length + 1);
+            // Changes made just before this read must be in it, which a lagging replica cannot promise
+            ReadRouting.onPrimary(() -> readOnlyTransaction.execute(status -> {
+                try (Stream<Object[]> rows = productRepository.streamAllPrices()) {
+                    Iterator<Object[]> it = rows.iterator();
+                    while (it.hasNext()) {
+                        Object[] row = it.next();
+                        rebuilt.put((Long) row[0], priceOf((Double) row[1]), boundaries);
+                    }
+                }
+                return null;
+            }));
+
+            synchronized (this) {
+                for (Change change : changedDuringReconcile) {
+                    change.applyTo(rebuilt, boundaries);
+                }
+                aggregate = rebuilt;
+                reconciledAt = Instant.now();
+            }
+        } catch (Exception e) {
+            logger.severe("Product stats reconcile failed: " + e.getMessage());
+        } finally {
+            synchronized (this) {
+                changedDuringReconcile = null;
+            }
+        }
+    }
+
+    private static double priceOf(Double price) {
+        return price == null ? Double.NaN : price;
+    }
+
+    private static int bucketOf(double price, double[] boundaries) {
+        // Buckets are [boundary[i-1], boundary[i]); binarySearch gives the insertion point for misses
+        int index = Arrays.binarySearch(boundaries, price);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reconciler.shutdownNow();
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.product_demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.example.product_demo.model.ProductChangeHorizon;
+import org.example.product_demo.repository.ProductChangeHorizonRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Deletes tombstones older than {@code product.tombstones.retention}, which
+ * otherwise accumulate with every delete for as long as the catalog exists.
+ * <p>
+ * Before deleting, the newest change_seq about to go is recorded as the
+ * {@link ProductChangeHorizon}, so delta sync can tell a client whose watermark
+ * predates it to reload rather than silently miss those deletes. Rows then go in
+ * batches of {@code product.tombstones.purge-batch-size}, each committing on its
+ * own.
+ */
+@Component
+public class ProductTombstonePurger {
+
+    private static final Logger logger = Logger.getLogger(ProductTombstonePurger.class.getName());
+
+    private static final String NEWEST_EXPIRED =
+            "SELECT MAX(change_seq) FROM product_tombstones WHERE deleted_at < ?";
+    private static final String DELETE_PURGED =
+            "DELETE FROM product_tombstones WHERE change_seq <= ? AND ROWNUM <= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductChangeHorizonRepository horizonRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+    private final Duration interval;
+    private final int batchSize;
+    private final Counter purged;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-tombstone-purger");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ProductTombstonePurger(JdbcTemplate jdbcTemplate,
+                                  ProductChangeHorizonRepository horizonRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${product.tombstones.retention:P30D}") Duration retention,
+                                  @Value("${product.tombstones.purge-interval:PT1H}") Duration interval,
+                                  @Value("${product.tombstones.purge-batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.horizonRepository = horizonRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retention = retention;
+        this.interval = interval;
+        this.batchSize = batchSize;
+        this.purged = Counter.builder("product.tombstones.purged")
+                .description("Tombstones deleted after the delta sync retention")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        long period = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::purge, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Deletes every tombstone older than the retention and raises the horizon
+     * past them.
+     *
+     * @return the number of tombstones deleted
+     */
+    public int purge() {
+        OffsetDateTime cutoff = OffsetDateTime.ofInstant(Instant.now().minus(retention), ZoneOffset.UTC);
+        int total = 0;
+        try {
+            Long newest = jdbcTemplate.query(NEWEST_EXPIRED,
+                    statement -> statement.setObject(1, cutoff, Types.TIMESTAMP_WITH_TIMEZONE),
+                    rs -> rs.next() ? (Long) rs.getObject(1, Long.class) : null);
+            if (newest == null) {
+                return 0;
+            }
+            // Committed before any row goes, so no reader sees the deletes missing without the horizon
+            transactionTemplate.executeWithoutResult(status -> {
+                if (horizonRepository.raisePurgedThrough(newest) == 0
+                        && !horizonRepository.existsById(ProductChangeHorizon.ID)) {
+                    horizonRepository.save(new ProductChangeHorizon(newest));
+                }
+            });
+
+            int deleted;
+            do {
+                deleted = jdbcTemplate.update(DELETE_PURGED, statement -> {
+                    statement.setLong(1, newest);
+                    statement.setInt(2, batchSize);
+                });
+                total += deleted;
+                purged.increment(deleted);
+            } while (deleted == batchSize);
+        } catch (Exception e) {
+            logger.severe("Product tombstone purge failed: " + e.getMessage());
+        }
+        if (total > 0) {
+            logger.info("Purged " + total + " product tombstones older than " + retention);
+        }
+        return total;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
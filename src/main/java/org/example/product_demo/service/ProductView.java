@@ -0,0 +1,24 @@
+package org.example.product_demo.service;
+
+import org.example.product_demo.exception.BadRequestException;
+
+import java.util.Locale;
+
+/**
+ * Named representations of a product. {@code SUMMARY} carries only what listing
+ * screens render (id, name, price, imageUrl) and is selected column-by-column.
+ */
+public enum ProductView {
+    SUMMARY, FULL;
+
+    public static ProductView from(String value) {
+        if (value == null || value.isEmpty()) {
+            return FULL;
+        }
+        try {
+            return ProductView.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Unsupported view: " + value);
+        }
+    }
+}
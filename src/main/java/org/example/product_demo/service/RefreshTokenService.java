@@ -1,70 +1,62 @@
 package org.example.product_demo.service;
 
-import jakarta.transaction.Transactional;
 import org.example.product_demo.exception.ApiException;
-import org.example.product_demo.model.RefreshToken;
 import org.example.product_demo.model.User;
-import org.example.product_demo.repository.RefreshTokenRepository;
-import org.example.product_demo.repository.UserRepository;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.example.product_demo.token.RefreshTokenGrant;
+import org.example.product_demo.token.RefreshTokenStore;
 import org.springframework.http.HttpStatus;
-import org.springframework.stereotype.Service;
 
 import java.time.Instant;
-import java.util.Optional;
 import java.util.UUID;
 
-@Service
 public class RefreshTokenService {
     private final long refreshTokenDurationMs;
-    private final RefreshTokenRepository refreshTokenRepository;
-    private final UserRepository userRepository;
+    private final RefreshTokenStore refreshTokenStore;
+    private final UserTokenVersions tokenVersions;
 
-    @Autowired
     public RefreshTokenService(
             long refreshExpiration,
-            RefreshTokenRepository refreshTokenRepository,
-            UserRepository userRepository) {
+            RefreshTokenStore refreshTokenStore,
+            UserTokenVersions tokenVersions) {
         this.refreshTokenDurationMs = refreshExpiration;
-        this.refreshTokenRepository = refreshTokenRepository;
-        this.userRepository = userRepository;
+        this.refreshTokenStore = refreshTokenStore;
+        this.tokenVersions = tokenVersions;
     }
 
-    public Optional<RefreshToken> findByToken(String token) {
-        return refreshTokenRepository.findByToken(token);
+    /**
+     * Issues a refresh token for the user, replacing the one they had.
+     */
+    public String createRefreshToken(User user) {
+        String token = UUID.randomUUID().toString();
+        refreshTokenStore.put(token, user, Instant.now().plusMillis(refreshTokenDurationMs));
+        return token;
     }
 
-    public RefreshToken createRefreshToken(User user) {
-        // First, check if user already has a refresh token
-        Optional<RefreshToken> existingToken = refreshTokenRepository.findByUser(user);
-        if (existingToken.isPresent()) {
-            refreshTokenRepository.delete(existingToken.get());
-        }
-
-        RefreshToken refreshToken = new RefreshToken();
-        refreshToken.setUser(user);
-        refreshToken.setExpiryDate(Instant.now().plusMillis(refreshTokenDurationMs));
-        refreshToken.setToken(UUID.randomUUID().toString());
-
-        refreshToken = refreshTokenRepository.save(refreshToken);
-        return refreshToken;
-    }
+    /**
+     * The grant behind a refresh token that is known, unexpired and not revoked.
+     */
+    public RefreshTokenGrant verify(String token) {
+        RefreshTokenGrant grant = refreshTokenStore.find(token)
+                .orElseThrow(() -> new ApiException("Refresh token not found in database!",
+                        HttpStatus.UNAUTHORIZED));
 
-    public RefreshToken verifyExpiration(RefreshToken token) {
-        if (token.getExpiryDate().compareTo(Instant.now()) < 0) {
-            refreshTokenRepository.delete(token);
+        if (grant.expiryDate().isBefore(Instant.now())) {
+            refreshTokenStore.remove(token);
             throw new ApiException("Refresh token was expired. Please make a new login request",
                     HttpStatus.UNAUTHORIZED);
         }
 
-        return token;
+        // Catches changes made on other instances, which the in-memory store does not see
+        if (!tokenVersions.isCurrent(grant.userId(), grant.tokenVersion())) {
+            refreshTokenStore.remove(token);
+            throw new ApiException("Refresh token was revoked. Please make a new login request",
+                    HttpStatus.UNAUTHORIZED);
+        }
+
+        return grant;
     }
 
-    @Transactional
     public int deleteByUserId(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ApiException("User not found with id " + userId,
-                        HttpStatus.NOT_FOUND));
-        return refreshTokenRepository.deleteByUser(user);
+        return refreshTokenStore.removeByUser(userId);
     }
-}
\ No newline at end of file
+}
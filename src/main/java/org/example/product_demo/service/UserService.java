@@ -6,6 +6,7 @@ import org.example.product_demo.exception.UserAlreadyExistsException;
 import org.example.product_demo.model.User;
 import org.example.product_demo.model.UserRole;
 import org.example.product_demo.repository.UserRepository;
+import org.example.product_demo.token.RefreshTokenStore;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -13,8 +14,10 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.logging.Logger;
 
 @Service
@@ -24,15 +27,26 @@ public class UserService implements UserDetailsService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
-
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    private final UserTokenVersions tokenVersions;
+    private final RefreshTokenStore refreshTokenStore;
+    // Checked against for unknown usernames, so they cost a login as much as a wrong password
+    private volatile String unknownUserPassword;
+
+    public UserService(UserRepository userRepository,
+                       PasswordEncoder passwordEncoder,
+                       UserTokenVersions tokenVersions,
+                       RefreshTokenStore refreshTokenStore) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.tokenVersions = tokenVersions;
+        this.refreshTokenStore = refreshTokenStore;
     }
 
+    // Used at login, and per request when stateless authentication is off; read-only so a replica can serve it
     @Override
+    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        logger.info("Loading user by username: " + username);
+        logger.fine(() -> "Loading user by username: " + username);
 
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> {
@@ -40,11 +54,46 @@ public class UserService implements UserDetailsService {
                     return new UsernameNotFoundException("User not found with username: " + username);
                 });
 
-        logger.info("User found: " + username);
+        logger.fine(() -> "User found: " + username);
         return user;
     }
 
-    public User registerNewUser(User user) throws UserAlreadyExistsException {
+    @Transactional(readOnly = true)
+    public Optional<User> findById(Long id) {
+        return userRepository.findById(id);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<User> findByUsername(String username) {
+        return userRepository.findByUsername(username);
+    }
+
+    /**
+     * Checks {@code rawPassword} against the user's stored hash; CPU work only, for
+     * the hashing pool. A {@code null} user never matches but costs the same.
+     */
+    public boolean passwordMatches(User user, String rawPassword) {
+        if (user == null) {
+            if (unknownUserPassword == null) {
+                unknownUserPassword = passwordEncoder.encode("unknown-user-password");
+            }
+            passwordEncoder.matches(rawPassword == null ? "" : rawPassword, unknownUserPassword);
+            return false;
+        }
+        return rawPassword != null && passwordEncoder.matches(rawPassword, user.getPassword());
+    }
+
+    // CPU work only, for the hashing pool
+    public String encodePassword(String rawPassword) {
+        return passwordEncoder.encode(rawPassword);
+    }
+
+    /**
+     * Refuses a self-registration whose username or email is taken; run before
+     * hashing the password, so a duplicate costs no BCrypt work.
+     */
+    @Transactional(readOnly = true)
+    public void checkAvailable(User user) throws UserAlreadyExistsException {
         if (userRepository.existsByUsername(user.getUsername())) {
             throw new UserAlreadyExistsException("Username already exists");
         }
@@ -52,12 +101,16 @@ public class UserService implements UserDetailsService {
         if (user.getEmail() != null && !user.getEmail().isEmpty() && userRepository.existsByEmail(user.getEmail())) {
             throw new UserAlreadyExistsException("Email already in use");
         }
+    }
 
+    /**
+     * Saves a self-registered user with a password already hashed by
+     * {@link #encodePassword}; call {@link #checkAvailable} first.
+     */
+    public User registerNewUser(User user, String encodedPassword) {
         // Default role is USER for self-registration
         user.setRole(UserRole.USER);
-
-        // Encode the password before saving
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
+        user.setPassword(encodedPassword);
         logger.info("Registering new user: " + user.getUsername());
         return userRepository.save(user);
     }
@@ -105,6 +158,11 @@ public class UserService implements UserDetailsService {
             throw new UserAlreadyExistsException("Email already in use");
         }
 
+        // Tokens carry the username and role, and should not outlive a password reset
+        boolean revokeTokens = (username != null && !username.equals(user.getUsername()))
+                || (password != null && !password.isEmpty())
+                || role != user.getRole();
+
         if (username != null) {
             user.setUsername(username);
         }
@@ -118,9 +176,17 @@ public class UserService implements UserDetailsService {
         }
 
         user.setRole(role);
+        if (revokeTokens) {
+            user.setTokenVersion(user.getTokenVersion() + 1);
+        }
 
         logger.info("Updating user: " + user.getId() + " with role: " + role);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        tokenVersions.update(saved.getId(), saved.getTokenVersion());
+        if (revokeTokens) {
+            refreshTokenStore.removeByUser(saved.getId());
+        }
+        return saved;
     }
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -128,7 +194,9 @@ public class UserService implements UserDetailsService {
         if (!userRepository.existsById(id)) {
             throw new ResourceNotFoundException("User not found with id: " + id);
         }
+        refreshTokenStore.removeByUser(id);
         userRepository.deleteById(id);
+        tokenVersions.revoke(id);
         logger.info("Deleted user with id: " + id);
     }
 
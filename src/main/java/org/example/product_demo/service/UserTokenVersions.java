@@ -0,0 +1,119 @@
+package org.example.product_demo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.product_demo.config.ReadRouting;
+import org.example.product_demo.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Each user's current token version, held in memory so checking an access
+ * token for revocation is a map lookup rather than a query.
+ * <p>
+ * A token is accepted only while the version it was issued with is still the
+ * user's current one. Changes made here take effect at once; changes made by
+ * other instances are picked up by a reload from the database every
+ * {@code jwt.token-version.refresh-interval}. Users missing from the map are
+ * loaded on first use. Deleted users are kept as revoked so their tokens stay
+ * rejected.
+ */
+@Component
+public class UserTokenVersions {
+
+    private static final Logger logger = Logger.getLogger(UserTokenVersions.class.getName());
+
+    private static final int REVOKED = Integer.MAX_VALUE;
+
+    private final UserRepository userRepository;
+    private final Duration refreshInterval;
+    private final Map<Long, Integer> versions = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "token-versions");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public UserTokenVersions(UserRepository userRepository,
+                             @Value("${jwt.token-version.refresh-interval:PT1M}") Duration refreshInterval) {
+        this.userRepository = userRepository;
+        this.refreshInterval = refreshInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        long interval = refreshInterval.toMillis();
+        refresher.scheduleWithFixedDelay(this::refresh, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Whether a token issued at {@code tokenVersion} is still valid for the user.
+     */
+    public boolean isCurrent(long userId, int tokenVersion) {
+        Integer current = versions.get(userId);
+        if (current == null) {
+            // Read from the primary: a user registered moments ago may not be on a replica yet
+            current = ReadRouting.onPrimary(() -> userRepository.findTokenVersionById(userId).orElse(null));
+            if (current == null) {
+                return false;
+            }
+            versions.putIfAbsent(userId, current);
+        }
+        return tokenVersion == current;
+    }
+
+    /**
+     * Records a version the caller has just committed for the user.
+     */
+    public void update(long userId, int tokenVersion) {
+        versions.put(userId, tokenVersion);
+    }
+
+    public void revoke(long userId) {
+        versions.put(userId, REVOKED);
+    }
+
+    private void refresh() {
+        try {
+            List<Object[]> rows = ReadRouting.onPrimary(userRepository::findAllTokenVersions);
+            Map<Long, Integer> loaded = new HashMap<>(rows.size() * 2);
+            long maxId = Long.MIN_VALUE;
+            for (Object[] row : rows) {
+                long userId = ((Number) row[0]).longValue();
+                loaded.put(userId, ((Number) row[1]).intValue());
+                maxId = Math.max(maxId, userId);
+            }
+
+            // Versions only go up, so a change recorded while this was loading is never undone.
+            // Ids above the highest loaded one belong to users created since, not deleted ones.
+            long highestLoaded = maxId;
+            versions.replaceAll((userId, version) -> {
+                Integer stored = loaded.get(userId);
+                if (stored == null) {
+                    return userId <= highestLoaded ? REVOKED : version;
+                }
+                return Math.max(version, stored);
+            });
+            loaded.forEach((userId, version) -> versions.merge(userId, version, Math::max));
+        } catch (Exception e) {
+            logger.severe("Token version refresh failed: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+}
@@ -0,0 +1,185 @@
+package org.example.product_demo.token;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.example.product_demo.config.ReadRouting;
+import org.example.product_demo.model.RevokedAccessToken;
+import org.example.product_demo.repository.RevokedAccessTokenRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Access tokens revoked before their expiry, by {@code jti}, so logout takes
+ * effect at once instead of when the token runs out.
+ * <p>
+ * Checked on every authenticated request, so the common case of a token that
+ * was never revoked is answered by a lock-free {@link BloomFilter} alone; only
+ * a filter hit consults the exact set. Revocations are written to the
+ * {@code revoked_access_tokens} table and picked up by other instances every
+ * {@code jwt.revocation.sync-interval}. Every {@code jwt.revocation.rebuild-interval},
+ * or sooner if the set outgrows the filter, expired entries are dropped and the
+ * filter is rebuilt from what remains, since a Bloom filter cannot forget.
+ */
+@Component
+public class AccessTokenRevocations {
+
+    private static final Logger logger = Logger.getLogger(AccessTokenRevocations.class.getName());
+
+    private final RevokedAccessTokenRepository repository;
+    private final int expectedEntries;
+    private final double falsePositiveRate;
+    private final Duration syncInterval;
+    private final Duration rebuildInterval;
+
+    // jti to the token's expiry in epoch millis
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+    // The filter being rebuilt, which also receives revocations made meanwhile
+    private volatile BloomFilter pending;
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    // Written by the scheduler thread only
+    private Instant lastSync;
+
+    private final Counter falsePositives;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "access-token-revocations");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AccessTokenRevocations(RevokedAccessTokenRepository repository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${jwt.revocation.expected-entries:10000}") int expectedEntries,
+                                  @Value("${jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate,
+                                  @Value("${jwt.revocation.sync-interval:PT30S}") Duration syncInterval,
+                                  @Value("${jwt.revocation.rebuild-interval:PT10M}") Duration rebuildInterval) {
+        this.repository = repository;
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.syncInterval = syncInterval;
+        this.rebuildInterval = rebuildInterval;
+        this.filter = BloomFilter.forCapacity(expectedEntries, falsePositiveRate);
+
+        this.falsePositives = Counter.builder("auth.access.revocations.false-positives")
+                .description("Revocation checks the Bloom filter passed on to the exact set in vain")
+                .register(meterRegistry);
+        Gauge.builder("auth.access.revocations", revoked, Map::size)
+                .description("Revoked access tokens not yet expired")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        scheduler.scheduleWithFixedDelay(this::sync, 0, syncInterval.toMillis(), TimeUnit.MILLISECONDS);
+        long rebuild = rebuildInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::rebuild, rebuild, rebuild, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Revokes the token with this {@code jti}, here at once and on other
+     * instances at their next sync.
+     */
+    public void revoke(String jti, Instant expiresAt) {
+        Instant now = Instant.now();
+        if (jti == null || !expiresAt.isAfter(now)) {
+            return;
+        }
+        repository.save(new RevokedAccessToken(jti, expiresAt, now));
+        add(jti, expiresAt.toEpochMilli());
+    }
+
+    /**
+     * Whether the token with this {@code jti} has been revoked. Tokens issued
+     * without one cannot be revoked this way.
+     */
+    public boolean isRevoked(String jti) {
+        if (jti == null || !filter.mightContain(jti)) {
+            return false;
+        }
+        if (revoked.containsKey(jti)) {
+            return true;
+        }
+        falsePositives.increment();
+        return false;
+    }
+
+    private void add(String jti, long expiresAt) {
+        if (revoked.put(jti, expiresAt) != null) {
+            return;
+        }
+        // Read pending first: if it is already cleared, the rebuilt filter is installed and gets the add;
+        // if it is not yet set, the rebuild has not copied the set and will find this entry there
+        BloomFilter rebuilding = pending;
+        filter.add(jti);
+        if (rebuilding != null) {
+            rebuilding.add(jti);
+        }
+
+        if (revoked.size() > filter.capacity() && rebuildQueued.compareAndSet(false, true)) {
+            scheduler.execute(this::rebuild);
+        }
+    }
+
+    private void sync() {
+        try {
+            Instant started = Instant.now();
+            // After the first load, overlap the previous window to allow for clock skew between instances
+            List<RevokedAccessToken> rows = lastSync == null
+                    ? ReadRouting.onPrimary(() -> repository.findByExpiresAtAfter(started))
+                    : ReadRouting.onPrimary(() -> repository.findByRevokedAtAfter(lastSync.minus(syncInterval)));
+            long now = started.toEpochMilli();
+            for (RevokedAccessToken row : rows) {
+                long expiresAt = row.getExpiresAt().toEpochMilli();
+                if (expiresAt > now) {
+                    add(row.getJti(), expiresAt);
+                }
+            }
+            lastSync = started;
+        } catch (Exception e) {
+            logger.severe("Access token revocation sync failed: " + e.getMessage());
+        }
+    }
+
+    private void rebuild() {
+        try {
+            long now = System.currentTimeMillis();
+            revoked.values().removeIf(expiresAt -> expiresAt <= now);
+
+            BloomFilter rebuilt = BloomFilter.forCapacity(Math.max(expectedEntries, revoked.size() * 2),
+                    falsePositiveRate);
+            pending = rebuilt;
+            for (String jti : revoked.keySet()) {
+                rebuilt.add(jti);
+            }
+            filter = rebuilt;
+            pending = null;
+
+            repository.deleteExpired(Instant.ofEpochMilli(now));
+        } catch (Exception e) {
+            logger.severe("Access token revocation rebuild failed: " + e.getMessage());
+        } finally {
+            rebuildQueued.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
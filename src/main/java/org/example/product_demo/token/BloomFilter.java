@@ -0,0 +1,88 @@
+package org.example.product_demo.token;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Fixed-size Bloom filter over strings that many threads can read and add to
+ * without locking. Bits are set with an atomic OR, so concurrent adds never
+ * lose each other's bits, and a string once added always tests positive.
+ * <p>
+ * Positions come from one 64-bit hash split in two and combined by double
+ * hashing, so a test costs one pass over the string and a few word reads.
+ */
+final class BloomFilter {
+
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] words;
+    private final long bitCount;
+    private final int hashCount;
+    private final int capacity;
+
+    private BloomFilter(long bitCount, int hashCount, int capacity) {
+        this.words = new long[(int) ((bitCount + 63) >>> 6)];
+        this.bitCount = (long) words.length << 6;
+        this.hashCount = hashCount;
+        this.capacity = capacity;
+    }
+
+    /**
+     * A filter that holds {@code capacity} strings at the given false positive rate.
+     */
+    static BloomFilter forCapacity(int capacity, double falsePositiveRate) {
+        int expected = Math.max(1, capacity);
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int hashes = (int) Math.max(1, Math.round((double) bits / expected * ln2));
+        return new BloomFilter(Math.max(64, bits), hashes, expected);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    void add(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = bitIndex(h1 + i * h2);
+            WORDS.getAndBitwiseOr(words, (int) (bit >>> 6), 1L << bit);
+        }
+    }
+
+    boolean mightContain(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = bitIndex(h1 + i * h2);
+            long word = (long) WORDS.getAcquire(words, (int) (bit >>> 6));
+            if ((word & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long bitIndex(int combined) {
+        // Flip negative combinations, as Guava does, to stay within the table
+        return (combined < 0 ? ~combined : combined) % bitCount;
+    }
+
+    // FNV-1a over the chars, then the MurmurHash3 finalizer to spread the bits
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,396 @@
+package org.example.product_demo.token;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.example.product_demo.model.User;
+import org.example.product_demo.model.UserRole;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Refresh tokens held in memory, so issuing and redeeming one touches no database.
+ * <p>
+ * Tokens are keyed by the first 128 bits of their SHA-256 digest and spread over
+ * {@code jwt.refresh-token.shards} independently locked hash maps; a separate map
+ * from user id to key finds a user's token for replacement and logout. Expired
+ * tokens are reclaimed by a hashed timer wheel: each entry sits in the bucket of
+ * the tick it expires on, and each tick only visits that bucket, so expiry costs
+ * nothing per request and nothing per live token.
+ * <p>
+ * With {@code jwt.refresh-token.file} set, every change is appended to that file,
+ * which is replayed on startup and compacted once it holds mostly dead records.
+ * Appends are flushed every {@code jwt.refresh-token.file-flush-interval}, so a
+ * crash loses at most that much. Tokens are only known to the instance that
+ * issued them; use the JPA store when requests are spread across instances.
+ */
+@Component
+@ConditionalOnProperty(name = "jwt.refresh-token.store", havingValue = "memory")
+public class InMemoryRefreshTokenStore implements RefreshTokenStore {
+
+    private static final Logger logger = Logger.getLogger(InMemoryRefreshTokenStore.class.getName());
+
+    // Compact once the file holds this many records beyond twice the live tokens
+    private static final long COMPACTION_SLACK = 10_000;
+
+    private final Shard[] shards;
+    private final int shardMask;
+    private final Map<Long, TokenKey> byUser = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final long tickMillis;
+    private final int wheelMask;
+    // Every bucket up to this tick has been expired; written by the scheduler thread only
+    private volatile long processedTick;
+
+    private final RefreshTokenLog log;
+    private final Duration flushInterval;
+    private final Counter expired;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "refresh-token-store");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public InMemoryRefreshTokenStore(MeterRegistry meterRegistry,
+                                     @Value("${jwt.refresh-token.shards:16}") int shardCount,
+                                     @Value("${jwt.refresh-token.wheel-tick:PT1M}") Duration wheelTick,
+                                     @Value("${jwt.refresh-token.wheel-size:1024}") int wheelSize,
+                                     @Value("${jwt.refresh-token.file:}") String file,
+                                     @Value("${jwt.refresh-token.file-flush-interval:PT1S}") Duration flushInterval) {
+        int shardTotal = powerOfTwoAtLeast(shardCount);
+        int bucketTotal = powerOfTwoAtLeast(wheelSize);
+        this.shards = new Shard[shardTotal];
+        for (int i = 0; i < shardTotal; i++) {
+            shards[i] = new Shard(bucketTotal);
+        }
+        this.shardMask = shardTotal - 1;
+        this.tickMillis = Math.max(1, wheelTick.toMillis());
+        this.wheelMask = bucketTotal - 1;
+        this.processedTick = System.currentTimeMillis() / tickMillis;
+        this.flushInterval = flushInterval;
+
+        this.log = file.isBlank() ? null : openLog(Path.of(file));
+
+        this.expired = Counter.builder("auth.refresh.tokens.expired")
+                .description("Refresh tokens reclaimed by the expiry wheel")
+                .register(meterRegistry);
+        Gauge.builder("auth.refresh.tokens", size, AtomicInteger::get)
+                .description("Refresh tokens held in memory")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        scheduler.scheduleWithFixedDelay(this::advanceWheel, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        if (log != null) {
+            long interval = flushInterval.toMillis();
+            scheduler.scheduleWithFixedDelay(this::maintainLog, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // ─── Store ────────────────────────────────────────
+
+    @Override
+    public void put(String token, User user, Instant expiryDate) {
+        Entry entry = new Entry(keyOf(token), user.getId(), user.getUsername(), user.getRole(),
+                user.getTokenVersion(), expiryDate.toEpochMilli());
+        insert(entry);
+        if (log != null) {
+            log.appendPut(entry);
+        }
+
+        // Index after inserting, so a concurrent replacement always finds something to remove
+        TokenKey previous = byUser.put(entry.userId, entry.key);
+        if (previous != null && !previous.equals(entry.key)) {
+            delete(previous);
+        }
+    }
+
+    @Override
+    public Optional<RefreshTokenGrant> find(String token) {
+        TokenKey key = keyOf(token);
+        Shard shard = shardOf(key);
+        Entry entry;
+        shard.lock.lock();
+        try {
+            entry = shard.entries.get(key);
+        } finally {
+            shard.lock.unlock();
+        }
+        if (entry == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new RefreshTokenGrant(entry.userId, entry.username, entry.role, entry.tokenVersion,
+                Instant.ofEpochMilli(entry.expiresAt)));
+    }
+
+    @Override
+    public void remove(String token) {
+        TokenKey key = keyOf(token);
+        Entry entry = delete(key);
+        if (entry != null) {
+            byUser.remove(entry.userId, key);
+        }
+    }
+
+    @Override
+    public int removeByUser(long userId) {
+        TokenKey key = byUser.remove(userId);
+        return key != null && delete(key) != null ? 1 : 0;
+    }
+
+    private void insert(Entry entry) {
+        Shard shard = shardOf(entry.key);
+        shard.lock.lock();
+        try {
+            Entry replaced = shard.entries.put(entry.key, entry);
+            if (replaced != null) {
+                shard.unlink(replaced);
+            } else {
+                size.incrementAndGet();
+            }
+            link(shard, entry);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    private Entry delete(TokenKey key) {
+        Entry entry = unindex(key);
+        if (entry != null && log != null) {
+            log.appendRemove(key);
+        }
+        return entry;
+    }
+
+    private Entry unindex(TokenKey key) {
+        Shard shard = shardOf(key);
+        shard.lock.lock();
+        try {
+            Entry entry = shard.entries.remove(key);
+            if (entry != null) {
+                shard.unlink(entry);
+                size.decrementAndGet();
+            }
+            return entry;
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    // ─── Expiry wheel ─────────────────────────────────
+
+    // Caller holds the shard lock
+    private void link(Shard shard, Entry entry) {
+        entry.expiryTick = Math.floorDiv(entry.expiresAt, tickMillis) + 1;
+        // An entry already due goes in the next bucket to be processed
+        shard.link(entry, (int) (Math.max(entry.expiryTick, processedTick + 1) & wheelMask));
+    }
+
+    private void advanceWheel() {
+        try {
+            long now = System.currentTimeMillis() / tickMillis;
+            long from = processedTick + 1;
+            if (now - from >= wheelMask) {
+                // Fell a whole turn behind: every bucket is due
+                for (int bucket = 0; bucket <= wheelMask; bucket++) {
+                    expireBucket(bucket, now);
+                }
+            } else {
+                for (long tick = from; tick <= now; tick++) {
+                    expireBucket((int) (tick & wheelMask), tick);
+                }
+            }
+            processedTick = now;
+        } catch (Exception e) {
+            logger.severe("Refresh token expiry failed: " + e.getMessage());
+        }
+    }
+
+    private void expireBucket(int bucket, long tick) {
+        List<Entry> reclaimed = new ArrayList<>();
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                Entry entry = shard.buckets[bucket];
+                while (entry != null) {
+                    Entry next = entry.next;
+                    // Entries due on a later turn of the wheel stay put
+                    if (entry.expiryTick <= tick) {
+                        shard.entries.remove(entry.key);
+                        shard.unlink(entry);
+                        size.decrementAndGet();
+                        reclaimed.add(entry);
+                    }
+                    entry = next;
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        // Expired records need no removal record: replay and compaction skip them
+        for (Entry entry : reclaimed) {
+            byUser.remove(entry.userId, entry.key);
+        }
+        expired.increment(reclaimed.size());
+    }
+
+    // ─── Persistence ──────────────────────────────────
+
+    private RefreshTokenLog openLog(Path path) {
+        try {
+            long now = System.currentTimeMillis();
+            RefreshTokenLog.replay(path, entry -> {
+                if (entry.expiresAt > now) {
+                    insert(entry);
+                    TokenKey previous = byUser.put(entry.userId, entry.key);
+                    if (previous != null && !previous.equals(entry.key)) {
+                        unindex(previous);
+                    }
+                }
+            }, key -> {
+                Entry entry = unindex(key);
+                if (entry != null) {
+                    byUser.remove(entry.userId, key);
+                }
+            });
+            RefreshTokenLog opened = new RefreshTokenLog(path);
+            opened.rewrite(this::liveEntries);
+            logger.info("Loaded " + size.get() + " refresh tokens from " + path);
+            return opened;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open refresh token file " + path, e);
+        }
+    }
+
+    private void maintainLog() {
+        try {
+            log.flush();
+            if (log.records() > 2L * size.get() + COMPACTION_SLACK) {
+                log.rewrite(this::liveEntries);
+            }
+        } catch (Exception e) {
+            logger.severe("Refresh token file maintenance failed: " + e.getMessage());
+        }
+    }
+
+    private List<Entry> liveEntries() {
+        List<Entry> live = new ArrayList<>(size.get());
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                live.addAll(shard.entries.values());
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return live;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    // ─── Internals ────────────────────────────────────
+
+    private Shard shardOf(TokenKey key) {
+        return shards[(int) key.low() & shardMask];
+    }
+
+    private static TokenKey keyOf(String token) {
+        ByteBuffer digest = ByteBuffer.wrap(RefreshTokenDigest.of(token));
+        return new TokenKey(digest.getLong(0), digest.getLong(8));
+    }
+
+    private static int powerOfTwoAtLeast(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    record TokenKey(long high, long low) { }
+
+    static final class Entry {
+        final TokenKey key;
+        final long userId;
+        final String username;
+        final UserRole role;
+        final int tokenVersion;
+        final long expiresAt;
+
+        // Wheel position and bucket list links, guarded by the shard lock
+        long expiryTick;
+        int bucket;
+        Entry previous;
+        Entry next;
+
+        Entry(TokenKey key, long userId, String username, UserRole role, int tokenVersion, long expiresAt) {
+            this.key = key;
+            this.userId = userId;
+            this.username = username;
+            this.role = role;
+            this.tokenVersion = tokenVersion;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // ReentrantLock rather than synchronized: a virtual thread blocked on a monitor pins its carrier
+    private static final class Shard {
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<TokenKey, Entry> entries = new HashMap<>();
+        final Entry[] buckets;
+
+        Shard(int bucketCount) {
+            this.buckets = new Entry[bucketCount];
+        }
+
+        void link(Entry entry, int bucket) {
+            entry.bucket = bucket;
+            entry.previous = null;
+            entry.next = buckets[bucket];
+            if (entry.next != null) {
+                entry.next.previous = entry;
+            }
+            buckets[bucket] = entry;
+        }
+
+        void unlink(Entry entry) {
+            if (entry.previous != null) {
+                entry.previous.next = entry.next;
+            } else {
+                buckets[entry.bucket] = entry.next;
+            }
+            if (entry.next != null) {
+                entry.next.previous = entry.previous;
+            }
+            entry.previous = null;
+            entry.next = null;
+        }
+    }
+}
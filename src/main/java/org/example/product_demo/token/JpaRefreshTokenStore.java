@@ -0,0 +1,61 @@
+package org.example.product_demo.token;
+
+import org.example.product_demo.config.ReadRouting;
+import org.example.product_demo.model.RefreshToken;
+import org.example.product_demo.model.User;
+import org.example.product_demo.repository.RefreshTokenRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Refresh tokens in the {@code refresh_tokens} table, keyed by the token's digest.
+ * <p>
+ * Issuing is a bulk delete of the user's previous token plus an insert, and a
+ * lookup is one query joining the user's principal columns. Each row records the
+ * user's token version at issue, which the grant carries instead of the current
+ * one; rows from before that column count as version 0. Tokens issued before
+ * digests were stored are still found by their plain value.
+ */
+@Component
+@ConditionalOnProperty(name = "jwt.refresh-token.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaRefreshTokenStore implements RefreshTokenStore {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    public JpaRefreshTokenStore(RefreshTokenRepository refreshTokenRepository) {
+        this.refreshTokenRepository = refreshTokenRepository;
+    }
+
+    @Override
+    @Transactional
+    public void put(String token, User user, Instant expiryDate) {
+        refreshTokenRepository.deleteByUserId(user.getId());
+        refreshTokenRepository.save(new RefreshToken(RefreshTokenDigest.encoded(token), user, expiryDate));
+    }
+
+    @Override
+    public Optional<RefreshTokenGrant> find(String token) {
+        // Read from the primary: a token issued moments ago may not be on a replica yet
+        String digest = RefreshTokenDigest.encoded(token);
+        return ReadRouting.onPrimary(() -> refreshTokenRepository.findGrantByToken(digest)
+                .or(() -> refreshTokenRepository.findGrantByToken(token)));
+    }
+
+    @Override
+    @Transactional
+    public void remove(String token) {
+        if (refreshTokenRepository.deleteByToken(RefreshTokenDigest.encoded(token)) == 0) {
+            refreshTokenRepository.deleteByToken(token);
+        }
+    }
+
+    @Override
+    @Transactional
+    public int removeByUser(long userId) {
+        return refreshTokenRepository.deleteByUserId(userId);
+    }
+}
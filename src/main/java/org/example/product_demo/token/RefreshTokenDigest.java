@@ -0,0 +1,27 @@
+package org.example.product_demo.token;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * SHA-256 of a refresh token. Stores keep the digest so that a leaked table,
+ * file or heap dump holds nothing a client could present.
+ */
+final class RefreshTokenDigest {
+
+    private RefreshTokenDigest() { }
+
+    static byte[] of(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static String encoded(String token) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(of(token));
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.product_demo.token;
+
+import org.example.product_demo.model.User;
+import org.example.product_demo.model.UserRole;
+
+import java.time.Instant;
+
+/**
+ * What a refresh token entitles its holder to: a new access token for this user.
+ */
+public record RefreshTokenGrant(long userId, String username, UserRole role, int tokenVersion, Instant expiryDate) {
+
+    // Carries only what an access token needs
+    public User toUser() {
+        User user = new User();
+        user.setId(userId);
+        user.setUsername(username);
+        user.setRole(role);
+        user.setTokenVersion(tokenVersion);
+        return user;
+    }
+}
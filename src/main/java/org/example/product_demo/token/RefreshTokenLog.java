@@ -0,0 +1,182 @@
+package org.example.product_demo.token;
+
+import org.example.product_demo.model.UserRole;
+import org.example.product_demo.token.InMemoryRefreshTokenStore.Entry;
+import org.example.product_demo.token.InMemoryRefreshTokenStore.TokenKey;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Append-only file of refresh token changes for {@link InMemoryRefreshTokenStore}.
+ * <p>
+ * Each record is a one-byte type followed by the token key, and for a put the
+ * token's principal and expiry. A record cut short by a crash ends the replay.
+ * Compaction writes the live tokens to a temporary file and moves it over the
+ * old one, so the file is never left half-written.
+ */
+final class RefreshTokenLog {
+
+    private static final Logger logger = Logger.getLogger(RefreshTokenLog.class.getName());
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+
+    private final Path path;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Null while closed
+    private DataOutputStream out;
+    private volatile long records;
+
+    RefreshTokenLog(Path path) {
+        this.path = path;
+    }
+
+    static void replay(Path path, Consumer<Entry> puts, Consumer<TokenKey> removes) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                int type = in.read();
+                if (type == -1) {
+                    return;
+                }
+                TokenKey key = new TokenKey(in.readLong(), in.readLong());
+                if (type == PUT) {
+                    long userId = in.readLong();
+                    String username = in.readUTF();
+                    UserRole role = UserRole.valueOf(in.readUTF());
+                    int tokenVersion = in.readInt();
+                    long expiresAt = in.readLong();
+                    puts.accept(new Entry(key, userId, username, role, tokenVersion, expiresAt));
+                } else if (type == REMOVE) {
+                    removes.accept(key);
+                } else {
+                    logger.warning("Unknown record in " + path + "; ignoring the rest of the file");
+                    return;
+                }
+            }
+        } catch (EOFException e) {
+            logger.warning("Truncated record at the end of " + path + "; ignoring it");
+        }
+    }
+
+    /**
+     * Replaces the file with one put per live token and continues appending to it.
+     */
+    void rewrite(Supplier<List<Entry>> live) throws IOException {
+        lock.lock();
+        try {
+            closeStream();
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            List<Entry> entries = live.get();
+            try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+                 DataOutputStream data = new DataOutputStream(new BufferedOutputStream(file))) {
+                for (Entry entry : entries) {
+                    writePut(data, entry);
+                }
+                data.flush();
+                file.getFD().sync();
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path.toFile(), true)));
+            records = entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void appendPut(Entry entry) {
+        lock.lock();
+        try {
+            if (out == null) {
+                return;
+            }
+            writePut(out, entry);
+            records++;
+        } catch (IOException e) {
+            logger.severe("Cannot append to " + path + ": " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void appendRemove(TokenKey key) {
+        lock.lock();
+        try {
+            if (out == null) {
+                return;
+            }
+            out.writeByte(REMOVE);
+            out.writeLong(key.high());
+            out.writeLong(key.low());
+            records++;
+        } catch (IOException e) {
+            logger.severe("Cannot append to " + path + ": " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void flush() throws IOException {
+        lock.lock();
+        try {
+            if (out == null) {
+                return;
+            }
+            out.flush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long records() {
+        return records;
+    }
+
+    void close() {
+        lock.lock();
+        try {
+            closeStream();
+        } catch (IOException e) {
+            logger.severe("Cannot close " + path + ": " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeStream() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    private static void writePut(DataOutputStream data, Entry entry) throws IOException {
+        data.writeByte(PUT);
+        data.writeLong(entry.key.high());
+        data.writeLong(entry.key.low());
+        data.writeLong(entry.userId);
+        data.writeUTF(entry.username);
+        data.writeUTF(entry.role.name());
+        data.writeInt(entry.tokenVersion);
+        data.writeLong(entry.expiresAt);
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.product_demo.token;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Deletes expired rows from {@code refresh_tokens} in the background.
+ * <p>
+ * Otherwise a token is only deleted when its holder presents it after expiry,
+ * and abandoned tokens stay forever. Every {@code jwt.refresh-token.purge-interval}
+ * expired rows are deleted through the expiry index in batches of at most
+ * {@code jwt.refresh-token.purge-batch-size}, each statement committing on its own,
+ * so no lock is held for longer than one batch and logins carry on in between.
+ * The in-memory store reclaims expired tokens itself and does not need this.
+ */
+@Component
+@ConditionalOnProperty(name = "jwt.refresh-token.store", havingValue = "jpa", matchIfMissing = true)
+public class RefreshTokenPurger {
+
+    private static final Logger logger = Logger.getLogger(RefreshTokenPurger.class.getName());
+
+    private static final String DELETE_EXPIRED =
+            "DELETE FROM refresh_tokens WHERE expiry_date < ? AND ROWNUM <= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration interval;
+    private final int batchSize;
+    private final Duration batchPause;
+    private final Counter purged;
+    private final Timer purgeTime;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "refresh-token-purger");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public RefreshTokenPurger(JdbcTemplate jdbcTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${jwt.refresh-token.purge-interval:PT1H}") Duration interval,
+                              @Value("${jwt.refresh-token.purge-batch-size:1000}") int batchSize,
+                              @Value("${jwt.refresh-token.purge-batch-pause:PT0.1S}") Duration batchPause) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.interval = interval;
+        this.batchSize = batchSize;
+        this.batchPause = batchPause;
+        this.purged = Counter.builder("auth.refresh.tokens.purged")
+                .description("Expired refresh tokens deleted by the background purge")
+                .register(meterRegistry);
+        this.purgeTime = Timer.builder("auth.refresh.tokens.purge")
+                .description("Time spent deleting expired refresh tokens, per run")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        long period = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::purge, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Deletes every token expired before the run started.
+     *
+     * @return the number of tokens deleted
+     */
+    public int purge() {
+        OffsetDateTime cutoff = OffsetDateTime.ofInstant(Instant.now(), ZoneOffset.UTC);
+        Timer.Sample sample = Timer.start();
+        int total = 0;
+        try {
+            int deleted;
+            do {
+                deleted = jdbcTemplate.update(DELETE_EXPIRED, statement -> {
+                    statement.setObject(1, cutoff, Types.TIMESTAMP_WITH_TIMEZONE);
+                    statement.setInt(2, batchSize);
+                });
+                total += deleted;
+                purged.increment(deleted);
+                // A full batch means more remain; let other writers in before the next
+                if (deleted == batchSize && !batchPause.isZero()) {
+                    Thread.sleep(batchPause.toMillis());
+                }
+            } while (deleted == batchSize);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.severe("Refresh token purge failed: " + e.getMessage());
+        } finally {
+            sample.stop(purgeTime);
+        }
+        if (total > 0) {
+            logger.info("Purged " + total + " expired refresh tokens");
+        }
+        return total;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.product_demo.token;
+
+import org.example.product_demo.model.User;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Where refresh tokens live. A user holds at most one refresh token: storing a
+ * new one replaces the previous.
+ * <p>
+ * {@link JpaRefreshTokenStore} keeps them in the {@code refresh_tokens} table and
+ * suits any number of instances. {@link InMemoryRefreshTokenStore} keeps them in
+ * the heap, optionally backed by a local file, and suits a single instance or
+ * sticky sessions. {@code jwt.refresh-token.store} selects one. Both store only
+ * a digest of the token, never the token itself.
+ */
+public interface RefreshTokenStore {
+
+    void put(String token, User user, Instant expiryDate);
+
+    Optional<RefreshTokenGrant> find(String token);
+
+    void remove(String token);
+
+    /**
+     * Removes the user's refresh token.
+     *
+     * @return the number of tokens removed
+     */
+    int removeByUser(long userId);
+}
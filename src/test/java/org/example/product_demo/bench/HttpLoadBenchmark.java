@@ -0,0 +1,138 @@
+package org.example.product_demo.bench;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load generator for comparing request execution modes.
+ * Each of {@code concurrency} clients sends requests back to back for the
+ * measured duration; throughput and latency percentiles are printed at the end.
+ * <p>
+ * Run the application once with {@code spring.threads.virtual.enabled=false} and
+ * once with {@code true}, and point this at the same endpoints both times:
+ * <pre>
+ * java -cp target/test-classes org.example.product_demo.bench.HttpLoadBenchmark \
+ *     http://localhost:5000/api/products/1 400 30 10
+ * </pre>
+ * Arguments: url, concurrency, measured seconds, warm-up seconds. Additional
+ * urls may follow; clients cycle through them.
+ * <p>
+ * Build it with {@code mvn test-compile}. Virtual threads only pay off when
+ * requests wait on I/O, so measure against the real Oracle database with the
+ * connection pool sized as in production; an in-memory database makes the run
+ * CPU-bound and shows no difference between the two modes.
+ */
+public class HttpLoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("usage: HttpLoadBenchmark <url> <concurrency> <seconds> <warmupSeconds> [url...]");
+            System.exit(2);
+        }
+        List<URI> targets = new ArrayList<>();
+        targets.add(URI.create(args[0]));
+        for (int i = 4; i < args.length; i++) {
+            targets.add(URI.create(args[i]));
+        }
+        int concurrency = Integer.parseInt(args[1]);
+        Duration measured = Duration.ofSeconds(Long.parseLong(args[2]));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(args[3]));
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        System.out.println("warming up for " + warmup.toSeconds() + "s");
+        run(client, targets, concurrency, warmup);
+
+        System.out.println("measuring " + concurrency + " clients for " + measured.toSeconds() + "s");
+        Result result = run(client, targets, concurrency, measured);
+        result.print(measured);
+    }
+
+    private static Result run(HttpClient client, List<URI> targets, int concurrency, Duration duration)
+            throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+        List<Future<long[]>> workers = new ArrayList<>(concurrency);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int w = 0; w < concurrency; w++) {
+                int offset = w;
+                workers.add(executor.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    int next = offset;
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest request = HttpRequest.newBuilder(targets.get(next++ % targets.size()))
+                                .timeout(Duration.ofSeconds(30))
+                                .GET()
+                                .build();
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - start;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+        }
+
+        int total = 0;
+        List<long[]> perWorker = new ArrayList<>(concurrency);
+        for (Future<long[]> worker : workers) {
+            long[] latencies = worker.get();
+            perWorker.add(latencies);
+            total += latencies.length;
+        }
+        long[] all = new long[total];
+        int position = 0;
+        for (long[] latencies : perWorker) {
+            System.arraycopy(latencies, 0, all, position, latencies.length);
+            position += latencies.length;
+        }
+        Arrays.sort(all);
+        return new Result(all, errors.get());
+    }
+
+    private record Result(long[] sortedLatencies, long errors) {
+
+        void print(Duration duration) {
+            int n = sortedLatencies.length;
+            System.out.printf("requests   %d (%d errors)%n", n, errors);
+            System.out.printf("throughput %.1f req/s%n", n / (double) duration.toSeconds());
+            if (n == 0) {
+                return;
+            }
+            System.out.printf("p50        %.2f ms%n", percentile(0.50));
+            System.out.printf("p99        %.2f ms%n", percentile(0.99));
+            System.out.printf("p99.9      %.2f ms%n", percentile(0.999));
+            System.out.printf("max        %.2f ms%n", sortedLatencies[n - 1] / 1e6);
+        }
+
+        private double percentile(double p) {
+            int index = (int) Math.ceil(p * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, index)] / 1e6;
+        }
+    }
+}
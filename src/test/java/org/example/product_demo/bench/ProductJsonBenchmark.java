@@ -0,0 +1,128 @@
+package org.example.product_demo.bench;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.example.product_demo.json.ProductJsonHttpMessageConverter;
+import org.example.product_demo.json.ProductList;
+import org.example.product_demo.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the product listing through Spring Boot's default Jackson converter
+ * and through {@link ProductJsonHttpMessageConverter}, into a sink that only
+ * counts bytes. Run with the GC profiler to compare allocation per operation:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *     org.example.product_demo.bench.ProductJsonBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductJsonBenchmark {
+
+    @Param({"1", "1000"})
+    int size;
+
+    private final MappingJackson2HttpMessageConverter jackson =
+            new MappingJackson2HttpMessageConverter(Jackson2ObjectMapperBuilder.json()
+                    .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build());
+    private final ProductJsonHttpMessageConverter handWritten = new ProductJsonHttpMessageConverter();
+
+    private List<Product> products;
+    private ProductList productList;
+    private CountingMessage message;
+
+    @Setup
+    public void setUp() {
+        products = new ArrayList<>(size);
+        for (long i = 1; i <= size; i++) {
+            Product product = new Product("Product " + i, "Description of product number " + i,
+                    Math.round(i * 137.0 % 100_000) / 100.0, "https://cdn.example.com/img/" + i + ".png");
+            product.setId(i);
+            product.setVersion(i % 4);
+            product.setUpdatedAt(Instant.ofEpochSecond(1_700_000_000L + i * 61, (i % 1000) * 1_000_000));
+            products.add(product);
+        }
+        productList = ProductList.of(products);
+        message = new CountingMessage();
+    }
+
+    @Benchmark
+    public long jackson() throws IOException {
+        message.reset();
+        jackson.write(products, MediaType.APPLICATION_JSON, message);
+        return message.count;
+    }
+
+    @Benchmark
+    public long handWritten() throws IOException {
+        message.reset();
+        handWritten.write(productList, MediaType.APPLICATION_JSON, message);
+        return message.count;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ProductJsonBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+
+    private static final class CountingMessage extends OutputStream implements HttpOutputMessage {
+        private final HttpHeaders headers = new HttpHeaders();
+        long count;
+
+        void reset() {
+            headers.clear();
+            count = 0;
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return this;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
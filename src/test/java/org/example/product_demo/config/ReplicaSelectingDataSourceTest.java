@@ -0,0 +1,91 @@
+package org.example.product_demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routing through the same proxy arrangement as {@link ReplicaDataSourceConfig},
+ * with two in-memory databases standing in for the primary and a replica.
+ */
+class ReplicaSelectingDataSourceTest {
+
+    private HikariDataSource primary;
+    private HikariDataSource replica;
+    private ReplicaSelectingDataSource replicas;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+        replicas = new ReplicaSelectingDataSource(primary, List.of(replica), Duration.ofHours(1), Duration.ofSeconds(1));
+
+        LazyConnectionDataSourceProxy routing = new LazyConnectionDataSourceProxy(primary);
+        routing.setReadOnlyDataSource(replicas);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+
+        jdbcTemplate = new JdbcTemplate(routing);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        replicas.close();
+        primary.close();
+    }
+
+    @Test
+    void readOnlyTransactionsUseReplica() {
+        assertThat(nodeSeenBy(readOnly)).isEqualTo("replica");
+    }
+
+    @Test
+    void readWriteTransactionsUsePrimary() {
+        assertThat(nodeSeenBy(readWrite)).isEqualTo("primary");
+    }
+
+    @Test
+    void pinnedThreadReadsFromPrimary() {
+        assertThat(ReadRouting.onPrimary(() -> nodeSeenBy(readOnly))).isEqualTo("primary");
+        assertThat(nodeSeenBy(readOnly)).isEqualTo("replica");
+    }
+
+    @Test
+    void fallsBackToPrimaryWhenReplicaIsDown() {
+        replica.close();
+
+        assertThat(nodeSeenBy(readOnly)).isEqualTo("primary");
+        replicas.checkHealth();
+        assertThat(nodeSeenBy(readOnly)).isEqualTo("primary");
+    }
+
+    private String nodeSeenBy(TransactionTemplate transaction) {
+        return transaction.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM node", String.class));
+    }
+
+    private static HikariDataSource database(String name) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setPoolName(name);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE node (name VARCHAR(20))");
+        jdbc.update("INSERT INTO node (name) VALUES (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.product_demo.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.example.product_demo.model.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The hand-written writer must produce exactly what Jackson would, configured
+ * the way Spring Boot configures it.
+ */
+class ProductJsonWriterTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+
+    @Test
+    void matchesJacksonForEdgeValues() throws IOException {
+        List<Product> products = new ArrayList<>();
+        products.add(new Product());
+        products.add(product(1L, "Plain", "Simple description", 19.99, "https://example.com/a.png",
+                Instant.parse("2024-03-01T12:30:45Z")));
+        products.add(product(Long.MAX_VALUE, "Quote \" backslash \\ slash /", "tab\tnewline\nreturn\r\u0001\u001f\u007f",
+                0.0, null, Instant.parse("2024-02-29T23:59:59.123Z")));
+        products.add(product(-5L, "café € 中文 😀", "", -0.0, "",
+                Instant.parse("1969-12-31T23:59:59.000001Z")));
+        products.add(product(3L, "n", "d", 1e7, "i", Instant.parse("0001-01-01T00:00:00.000000001Z")));
+
+        double[] prices = {0.01, 0.1, 0.5, 1, 2.5, 9999999.99, 0.001, 0.0001, 1e-7, 0.1 + 0.2,
+                123456.789, 1e21, -42.42, Double.MIN_VALUE, Double.MAX_VALUE, Double.NaN,
+                Double.POSITIVE_INFINITY};
+        for (double price : prices) {
+            products.add(product(10L, "p", null, price, null, Instant.ofEpochSecond(1_700_000_000L, 120_000_000)));
+        }
+
+        for (Product product : products) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ProductJsonWriter.write(product, out);
+            assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(objectMapper.writeValueAsString(product));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ProductJsonWriter.writeArray(products, out);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(objectMapper.writeValueAsString(products));
+    }
+
+    @Test
+    void flushesListsLargerThanTheBuffer() throws IOException {
+        List<Product> products = new ArrayList<>();
+        for (long i = 0; i < 2000; i++) {
+            products.add(product(i, "Product " + i, "x".repeat((int) (i % 300)), i / 7.0, "img-" + i,
+                    Instant.ofEpochSecond(1_600_000_000L + i * 3_601, i * 1000)));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ProductJsonWriter.writeArray(products, out);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(objectMapper.writeValueAsString(products));
+    }
+
+    private static Product product(Long id, String name, String description, Double price, String imageUrl,
+                                   Instant updatedAt) {
+        Product product = new Product(name, description, price, imageUrl);
+        product.setId(id);
+        product.setVersion(id == null ? 0 : Math.abs(id % 5));
+        product.setUpdatedAt(updatedAt);
+        return product;
+    }
+}
@@ -0,0 +1,117 @@
+package org.example.product_demo.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.product_demo.model.User;
+import org.example.product_demo.model.UserRole;
+import org.example.product_demo.service.UserTokenVersions;
+import org.example.product_demo.token.AccessTokenRevocations;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Which bearer tokens the filter turns into an authentication, with a real
+ * signer and mocked revocation state.
+ */
+class JwtAuthenticationFilterTest {
+
+    private final JwtUtils jwtUtils = new JwtUtils("test-secret-test-secret-test-secret-test-secret-0123456789",
+            3_600_000, new SimpleMeterRegistry(), 100, Duration.ofMinutes(10));
+
+    private AccessTokenRevocations revocations;
+    private UserTokenVersions tokenVersions;
+    private UserDetailsService userDetailsService;
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        revocations = mock(AccessTokenRevocations.class);
+        tokenVersions = mock(UserTokenVersions.class);
+        userDetailsService = mock(UserDetailsService.class);
+        when(tokenVersions.isCurrent(anyLong(), anyInt())).thenReturn(true);
+
+        filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtils", jwtUtils);
+        ReflectionTestUtils.setField(filter, "revocations", revocations);
+        ReflectionTestUtils.setField(filter, "tokenVersions", tokenVersions);
+        ReflectionTestUtils.setField(filter, "userDetailsService", userDetailsService);
+        ReflectionTestUtils.setField(filter, "statelessAuthentication", true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void currentTokenAuthenticatesFromItsClaims() throws Exception {
+        Authentication authentication = authenticate(jwtUtils.generateToken(user(1)));
+
+        assertThat(authentication).isNotNull();
+        assertThat(((User) authentication.getPrincipal()).getId()).isEqualTo(7L);
+        assertThat(authentication.getAuthorities()).extracting(Object::toString).contains("ROLE_ADMIN");
+    }
+
+    @Test
+    void tokenRevokedAtLogoutIsRejected() throws Exception {
+        String token = jwtUtils.generateToken(user(1));
+        String jti = jwtUtils.getValidatedClaims(token).getId();
+        when(revocations.isRevoked(jti)).thenReturn(true);
+
+        assertThat(authenticate(token)).isNull();
+    }
+
+    @Test
+    void tokenFromBeforeAVersionBumpIsRejected() throws Exception {
+        when(tokenVersions.isCurrent(7L, 1)).thenReturn(false);
+
+        assertThat(authenticate(jwtUtils.generateToken(user(1)))).isNull();
+        assertThat(authenticate(jwtUtils.generateToken(user(2)))).isNotNull();
+    }
+
+    @Test
+    void statefulModeComparesTheVersionOfTheLoadedUser() throws Exception {
+        ReflectionTestUtils.setField(filter, "statelessAuthentication", false);
+        when(revocations.isRevoked(anyString())).thenReturn(false);
+        when(userDetailsService.loadUserByUsername("alice")).thenReturn(user(2));
+
+        assertThat(authenticate(jwtUtils.generateToken(user(1)))).isNull();
+        assertThat(authenticate(jwtUtils.generateToken(user(2)))).isNotNull();
+    }
+
+    // The authentication the rest of the chain sees for a request with this token
+    private Authentication authenticate(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/admin/users");
+        request.addHeader("Authorization", "Bearer " + token);
+        AtomicReference<Authentication> seen = new AtomicReference<>();
+        filter.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> seen.set(SecurityContextHolder.getContext().getAuthentication()));
+        return seen.get();
+    }
+
+    private static User user(int tokenVersion) {
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("alice");
+        user.setRole(UserRole.ADMIN);
+        user.setTokenVersion(tokenVersion);
+        return user;
+    }
+}
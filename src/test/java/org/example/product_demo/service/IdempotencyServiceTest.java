@@ -0,0 +1,165 @@
+package org.example.product_demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Retries that arrive while the original request is still running, and key
+ * scoping by caller.
+ */
+class IdempotencyServiceTest {
+
+    private static final Map<String, String> BODY = Map.of("name", "Lamp");
+
+    private final ExecutorService callers = Executors.newFixedThreadPool(2);
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void retryWaitsForTheRunningOriginalAndGetsItsResponse() throws Exception {
+        IdempotencyService idempotency = service(Duration.ofSeconds(5));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+
+        Future<ResponseEntity<?>> original = callers.submit(() -> idempotency.execute("products", "k1", BODY, () -> {
+            started.countDown();
+            await(finish);
+            return created();
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<ResponseEntity<?>> retry = callers.submit(() -> idempotency.execute("products", "k1", BODY,
+                IdempotencyServiceTest.this::created));
+
+        Thread.sleep(100);
+        assertThat(retry.isDone()).isFalse();
+        finish.countDown();
+
+        assertThat(original.get(5, TimeUnit.SECONDS).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        ResponseEntity<?> replayed = retry.get(5, TimeUnit.SECONDS);
+        assertThat(replayed.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void retryGivesUpWithConflictWhenTheOriginalOutlastsTheTimeout() throws Exception {
+        IdempotencyService idempotency = service(Duration.ofMillis(100));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+
+        callers.submit(() -> idempotency.execute("products", "k1", BODY, () -> {
+            started.countDown();
+            await(finish);
+            return created();
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        ResponseEntity<?> retry = idempotency.execute("products", "k1", BODY, this::created);
+        finish.countDown();
+
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(runs).hasValue(0);
+    }
+
+    @Test
+    void asyncRetryCompletesWhenTheOriginalDoes() {
+        IdempotencyService idempotency = service(Duration.ofSeconds(5));
+        CompletableFuture<ResponseEntity<?>> pending = new CompletableFuture<>();
+
+        CompletableFuture<ResponseEntity<?>> original = idempotency.executeAsync("register", "k1", BODY, () -> pending);
+        CompletableFuture<ResponseEntity<?>> retry = idempotency.executeAsync("register", "k1", BODY,
+                () -> CompletableFuture.completedFuture(created()));
+
+        assertThat(retry).isNotDone();
+        pending.complete(ResponseEntity.status(HttpStatus.CREATED).body(BODY));
+
+        assertThat(original.join().getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(retry.join().getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(runs).hasValue(0);
+    }
+
+    @Test
+    void failedOriginalLetsTheWaitingRetryRunItself() throws Exception {
+        IdempotencyService idempotency = service(Duration.ofSeconds(5));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+
+        Future<ResponseEntity<?>> original = callers.submit(() -> idempotency.execute("products", "k1", BODY, () -> {
+            started.countDown();
+            await(finish);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<ResponseEntity<?>> retry = callers.submit(() -> idempotency.execute("products", "k1", BODY,
+                IdempotencyServiceTest.this::created));
+        Thread.sleep(100);
+        finish.countDown();
+
+        assertThat(original.get(5, TimeUnit.SECONDS).getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        ResponseEntity<?> ranItself = retry.get(5, TimeUnit.SECONDS);
+        assertThat(ranItself.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(ranItself.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)).isFalse();
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void sameKeyFromAnotherClientIsNotReplayed() {
+        IdempotencyService idempotency = service(Duration.ofSeconds(5));
+
+        fromAddress("10.0.0.1");
+        idempotency.execute("products", "k1", BODY, this::created);
+        fromAddress("10.0.0.2");
+        ResponseEntity<?> other = idempotency.execute("products", "k1", BODY, this::created);
+
+        assertThat(other.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)).isFalse();
+        assertThat(runs).hasValue(2);
+    }
+
+    private IdempotencyService service(Duration inFlightTimeout) {
+        return new IdempotencyService(new ObjectMapper(), new SimpleMeterRegistry(), 100, Duration.ofHours(1),
+                inFlightTimeout);
+    }
+
+    private ResponseEntity<?> created() {
+        runs.incrementAndGet();
+        return ResponseEntity.status(HttpStatus.CREATED).body(BODY);
+    }
+
+    private static void fromAddress(String address) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(address);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
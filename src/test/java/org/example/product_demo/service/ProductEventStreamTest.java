@@ -0,0 +1,130 @@
+package org.example.product_demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.product_demo.model.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Subscriber eviction, with emitters standing in for clients that read or stall.
+ */
+class ProductEventStreamTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch unblock = new CountDownLatch(1);
+    private ProductEventStream stream;
+
+    @BeforeEach
+    void setUp() {
+        stream = new ProductEventStream(new ObjectMapper().findAndRegisterModules(), meterRegistry, 4, 16, 2,
+                Duration.ofMinutes(30), Duration.ofMinutes(5), Duration.ofMillis(200));
+    }
+
+    @AfterEach
+    void tearDown() {
+        unblock.countDown();
+        stream.shutdown();
+    }
+
+    @Test
+    void stalledSubscriberIsDroppedWhileOthersKeepReceiving() throws Exception {
+        StalledEmitter stalled = new StalledEmitter();
+        RecordingEmitter healthy = new RecordingEmitter();
+        stream.subscribe(null, stalled);
+        stream.subscribe(null, healthy);
+        assertThat(stalled.sending.await(5, TimeUnit.SECONDS)).isTrue();
+
+        stream.onProductChange(ProductChangeEvent.updated(product(1L)));
+
+        await(() -> healthy.frames.size() == 2);
+        await(() -> counter("product.events.stalled") == 1);
+        await(() -> stalled.completed);
+        assertThat(meterRegistry.get("product.events.subscribers").gauge().value()).isEqualTo(1);
+
+        // Frames after the drop go to the healthy subscriber only
+        stream.onProductChange(ProductChangeEvent.updated(product(2L)));
+        await(() -> healthy.frames.size() == 3);
+        assertThat(stalled.attempts).isEqualTo(1);
+    }
+
+    @Test
+    void subscriberWhoseOutboxOverflowsIsDropped() throws Exception {
+        StalledEmitter stalled = new StalledEmitter();
+        stream.subscribe(null, stalled);
+        assertThat(stalled.sending.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // The outbox holds the buffer size plus two; the connected frame is already taken
+        for (long id = 1; id <= 7; id++) {
+            stream.onProductChange(ProductChangeEvent.updated(product(id)));
+        }
+
+        await(() -> counter("product.events.dropped") == 1);
+        assertThat(meterRegistry.get("product.events.subscribers").gauge().value()).isZero();
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static Product product(long id) {
+        Product product = new Product("Lamp " + id, "Desk lamp", 20.0, null);
+        product.setId(id);
+        return product;
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        final List<Set<DataWithMediaType>> frames = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(Set<DataWithMediaType> items) {
+            frames.add(items);
+        }
+    }
+
+    // A client that stopped reading: its first write blocks until the test ends
+    private class StalledEmitter extends SseEmitter {
+        final CountDownLatch sending = new CountDownLatch(1);
+        volatile int attempts;
+        volatile boolean completed;
+
+        @Override
+        public void send(Set<DataWithMediaType> items) throws IOException {
+            attempts++;
+            sending.countDown();
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IOException("Broken pipe");
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+}
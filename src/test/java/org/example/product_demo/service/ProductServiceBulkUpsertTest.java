@@ -0,0 +1,80 @@
+package org.example.product_demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.example.product_demo.model.Product;
+import org.example.product_demo.repository.ProductChangeHorizonRepository;
+import org.example.product_demo.repository.ProductRepository;
+import org.example.product_demo.repository.ProductTombstoneRepository;
+import org.example.product_demo.search.ProductSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Bulk upserts against mocked persistence, with change events delivered to a
+ * real search index the way the application context would.
+ */
+class ProductServiceBulkUpsertTest {
+
+    private Product existing;
+    private ProductSearchIndex searchIndex;
+    private ProductService productService;
+
+    @BeforeEach
+    void setUp() {
+        existing = new Product("Old lamp", "Brass desk lamp", 20.0, null);
+        existing.setId(7L);
+
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findAllById(any())).thenReturn(List.of(existing));
+        EntityManager entityManager = mock(EntityManager.class);
+        // Flushing a dirty entity bumps its @Version, as Hibernate would
+        doAnswer(invocation -> {
+            existing.setVersion(existing.getVersion() + 1);
+            return null;
+        }).when(entityManager).flush();
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        ProductCache productCache = mock(ProductCache.class);
+
+        searchIndex = new ProductSearchIndex(productRepository, productCache, entityManager, transactionManager,
+                null, Duration.ofSeconds(30));
+        searchIndex.index(existing);
+
+        productService = new ProductService(productRepository, mock(ProductTombstoneRepository.class),
+                mock(ProductChangeHorizonRepository.class), productCache, entityManager, new ObjectMapper(),
+                transactionManager, event -> searchIndex.onProductChange((ProductChangeEvent) event),
+                Duration.ofSeconds(5));
+    }
+
+    @Test
+    void updatingAnExistingProductReportsItAndReindexesIt() throws Exception {
+        String body = "[{\"id\":7,\"name\":\"Green lamp\",\"description\":\"Brass desk lamp\",\"price\":25.0}]";
+
+        ProductBulkResult result = productService.bulkUpsert(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(result.getError()).isNull();
+        assertThat(result.getUpdated()).isEqualTo(1);
+        assertThat(result.getFailed()).isZero();
+        assertThat(result.getItems()).singleElement().satisfies(item -> {
+            assertThat(item.getId()).isEqualTo(7L);
+            assertThat(item.getStatus()).isEqualTo(ProductBulkResult.Status.UPDATED);
+        });
+
+        assertThat(existing.getName()).isEqualTo("Green lamp");
+        assertThat(searchIndex.search("green", 10).getTotal()).isEqualTo(1);
+        assertThat(searchIndex.search("old", 10).getTotal()).isZero();
+    }
+}
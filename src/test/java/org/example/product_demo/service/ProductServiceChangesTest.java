@@ -0,0 +1,119 @@
+package org.example.product_demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.example.product_demo.model.Product;
+import org.example.product_demo.model.ProductTombstone;
+import org.example.product_demo.repository.ProductChangeHorizonRepository;
+import org.example.product_demo.repository.ProductRepository;
+import org.example.product_demo.repository.ProductTombstoneRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Delta sync over mocked change_seq lookups.
+ */
+class ProductServiceChangesTest {
+
+    private final Instant settled = Instant.now().minusSeconds(60);
+
+    private ProductRepository productRepository;
+    private ProductTombstoneRepository tombstoneRepository;
+    private ProductChangeHorizonRepository horizonRepository;
+    private ProductService productService;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        tombstoneRepository = mock(ProductTombstoneRepository.class);
+        horizonRepository = mock(ProductChangeHorizonRepository.class);
+        when(horizonRepository.findPurgedThrough()).thenReturn(Optional.empty());
+        productService = new ProductService(productRepository, tombstoneRepository, horizonRepository,
+                mock(ProductCache.class), mock(EntityManager.class), new ObjectMapper(),
+                mock(PlatformTransactionManager.class), event -> { }, Duration.ofSeconds(5));
+    }
+
+    @Test
+    void mergesWritesAndDeletesInSequenceOrder() {
+        List<Product> products = List.of(product(1, 11, settled), product(2, 13, settled));
+        List<ProductTombstone> tombstones = List.of(tombstone(5, 12, settled));
+        when(productRepository.findChangedSince(anyLong(), any())).thenReturn(products);
+        when(tombstoneRepository.findChangedSince(anyLong(), any())).thenReturn(tombstones);
+
+        ProductChanges changes = productService.findChanges(10, 10);
+
+        assertThat(changes.getUpdated()).extracting(Product::getId).containsExactly(1L, 2L);
+        assertThat(changes.getDeleted()).containsExactly(5L);
+        assertThat(changes.getWatermark()).isEqualTo(13);
+        assertThat(changes.isHasMore()).isFalse();
+        assertThat(changes.isResync()).isFalse();
+    }
+
+    @Test
+    void stopsBeforeChangesThatHaveNotSettled() {
+        // 12 may have been written after 13 began and committed after it; the watermark must not pass it yet
+        List<Product> products = List.of(product(1, 11, settled), product(2, 12, Instant.now()),
+                product(3, 13, settled));
+        when(productRepository.findChangedSince(anyLong(), any())).thenReturn(products);
+        when(tombstoneRepository.findChangedSince(anyLong(), any())).thenReturn(List.of());
+
+        ProductChanges changes = productService.findChanges(10, 10);
+
+        assertThat(changes.getUpdated()).extracting(Product::getId).containsExactly(1L);
+        assertThat(changes.getWatermark()).isEqualTo(11);
+        assertThat(changes.isHasMore()).isFalse();
+    }
+
+    @Test
+    void watermarkBehindPurgedTombstonesGetsResync() {
+        when(horizonRepository.findPurgedThrough()).thenReturn(Optional.of(500L));
+
+        ProductChanges changes = productService.findChanges(100, 10);
+
+        assertThat(changes.isResync()).isTrue();
+        assertThat(changes.getWatermark()).isEqualTo(500);
+        assertThat(changes.getUpdated()).isEmpty();
+        assertThat(changes.getDeleted()).isEmpty();
+    }
+
+    @Test
+    void firstSyncIsNotSentToResync() {
+        when(horizonRepository.findPurgedThrough()).thenReturn(Optional.of(500L));
+        List<Product> products = List.of(product(1, 600, settled));
+        when(productRepository.findChangedSince(anyLong(), any())).thenReturn(products);
+        when(tombstoneRepository.findChangedSince(anyLong(), any())).thenReturn(List.of());
+
+        ProductChanges changes = productService.findChanges(0, 10);
+
+        assertThat(changes.isResync()).isFalse();
+        assertThat(changes.getUpdated()).hasSize(1);
+    }
+
+    private static Product product(long id, long changeSeq, Instant updatedAt) {
+        Product product = mock(Product.class);
+        when(product.getId()).thenReturn(id);
+        when(product.getChangeSeq()).thenReturn(changeSeq);
+        when(product.getUpdatedAt()).thenReturn(updatedAt);
+        return product;
+    }
+
+    private static ProductTombstone tombstone(long productId, long changeSeq, Instant deletedAt) {
+        ProductTombstone tombstone = mock(ProductTombstone.class);
+        when(tombstone.getProductId()).thenReturn(productId);
+        when(tombstone.getChangeSeq()).thenReturn(changeSeq);
+        when(tombstone.getDeletedAt()).thenReturn(deletedAt);
+        return tombstone;
+    }
+}
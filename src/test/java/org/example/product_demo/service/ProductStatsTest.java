@@ -0,0 +1,117 @@
+package org.example.product_demo.service;
+
+import org.example.product_demo.model.Product;
+import org.example.product_demo.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Aggregate bookkeeping against a plain map of the same changes, with the
+ * database read mocked.
+ */
+class ProductStatsTest {
+
+    private ProductRepository productRepository;
+    private ProductStats stats;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        stats = new ProductStats(productRepository, mock(PlatformTransactionManager.class),
+                new double[] {10, 100}, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void nothingIsServedBeforeTheFirstReconcile() {
+        when(productRepository.streamAllPrices())
+                .thenReturn(Stream.of(new Object[] {1L, 5.0}, new Object[] {2L, 50.0}));
+        stats.onProductChange(ProductChangeEvent.updated(product(2L, 50.0)));
+
+        assertThat(stats.snapshot()).isNull();
+
+        stats.reconcile();
+
+        assertThat(stats.snapshot()).containsEntry("count", 2L).containsEntry("maxPrice", 50.0);
+    }
+
+    @Test
+    void changesDuringReconcileAreReplayedOntoTheRebuiltAggregate() {
+        // The read started before product 2 was deleted and 3 created, so it still returns 2 and lacks 3
+        Stream<Object[]> rows = Stream.of(new Object[] {1L, 5.0}, new Object[] {2L, 50.0})
+                .peek(row -> {
+                    if (row[0].equals(1L)) {
+                        stats.onProductChange(ProductChangeEvent.deleted(2L));
+                        stats.onProductChange(ProductChangeEvent.created(product(3L, 70.0)));
+                    }
+                });
+        when(productRepository.streamAllPrices()).thenReturn(rows);
+
+        stats.reconcile();
+
+        Map<String, Object> snapshot = stats.snapshot();
+        assertThat(snapshot).containsEntry("count", 2L)
+                .containsEntry("minPrice", 5.0)
+                .containsEntry("maxPrice", 70.0)
+                .containsEntry("avgPrice", 37.5);
+    }
+
+    @Test
+    void matchesARecountAfterRandomWrites() {
+        when(productRepository.streamAllPrices()).thenReturn(Stream.empty());
+        stats.reconcile();
+
+        Random random = new Random(42);
+        Map<Long, Double> expected = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            long id = 1 + random.nextInt(3000);
+            if (random.nextInt(4) == 0) {
+                expected.remove(id);
+                stats.onProductChange(ProductChangeEvent.deleted(id));
+            } else {
+                Double price = random.nextInt(10) == 0 ? null : (double) random.nextInt(200);
+                expected.put(id, price);
+                stats.onProductChange(ProductChangeEvent.updated(product(id, price)));
+            }
+            if (i % 1000 == 0) {
+                assertMatches(expected);
+            }
+        }
+        assertMatches(expected);
+    }
+
+    private void assertMatches(Map<Long, Double> expected) {
+        List<Double> priced = expected.values().stream().filter(p -> p != null).sorted().toList();
+        long[] buckets = new long[3];
+        for (double price : priced) {
+            buckets[price < 10 ? 0 : price < 100 ? 1 : 2]++;
+        }
+
+        Map<String, Object> snapshot = stats.snapshot();
+        assertThat(snapshot.get("count")).isEqualTo((long) expected.size());
+        assertThat(snapshot.get("pricedCount")).isEqualTo((long) priced.size());
+        assertThat(snapshot.get("minPrice")).isEqualTo(priced.isEmpty() ? null : priced.get(0));
+        assertThat(snapshot.get("maxPrice")).isEqualTo(priced.isEmpty() ? null : priced.get(priced.size() - 1));
+        List<?> histogram = (List<?>) snapshot.get("histogram");
+        for (int i = 0; i < buckets.length; i++) {
+            assertThat(((Map<?, ?>) histogram.get(i)).get("count")).isEqualTo(buckets[i]);
+        }
+    }
+
+    private static Product product(long id, Double price) {
+        Product product = new Product("Lamp " + id, "Desk lamp", price, null);
+        product.setId(id);
+        return product;
+    }
+}
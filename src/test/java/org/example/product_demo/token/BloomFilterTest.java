@@ -0,0 +1,62 @@
+package org.example.product_demo.token;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    @Test
+    void concurrentAddsAreNeverLost() throws Exception {
+        BloomFilter filter = BloomFilter.forCapacity(40_000, 0.01);
+        List<List<String>> batches = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            List<String> batch = new ArrayList<>();
+            for (int i = 0; i < 5_000; i++) {
+                batch.add(UUID.randomUUID().toString());
+            }
+            batches.add(batch);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(batches.size());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (List<String> batch : batches) {
+                futures.add(executor.submit(() -> batch.forEach(filter::add)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        for (List<String> batch : batches) {
+            assertThat(batch).allMatch(filter::mightContain);
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTarget() {
+        BloomFilter filter = BloomFilter.forCapacity(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(UUID.randomUUID().toString());
+        }
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+        assertThat((double) falsePositives / probes).isLessThan(0.02);
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.product_demo.token;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.product_demo.model.User;
+import org.example.product_demo.model.UserRole;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryRefreshTokenStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<InMemoryRefreshTokenStore> stores = new ArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        stores.forEach(InMemoryRefreshTokenStore::shutdown);
+    }
+
+    @Test
+    void findsTokenWithItsPrincipal() {
+        InMemoryRefreshTokenStore store = store(Duration.ofMinutes(1), "");
+        Instant expiry = Instant.now().plusSeconds(60);
+        store.put("token-a", user(1, UserRole.ADMIN, 3), expiry);
+
+        RefreshTokenGrant grant = store.find("token-a").orElseThrow();
+        assertThat(grant.userId()).isEqualTo(1);
+        assertThat(grant.username()).isEqualTo("user1");
+        assertThat(grant.role()).isEqualTo(UserRole.ADMIN);
+        assertThat(grant.tokenVersion()).isEqualTo(3);
+        assertThat(grant.expiryDate()).isEqualTo(expiry.truncatedTo(ChronoUnit.MILLIS));
+        assertThat(store.find("token-b")).isEmpty();
+    }
+
+    @Test
+    void newTokenReplacesTheUsersPrevious() {
+        InMemoryRefreshTokenStore store = store(Duration.ofMinutes(1), "");
+        store.put("first", user(1, UserRole.USER, 0), Instant.now().plusSeconds(60));
+        store.put("second", user(1, UserRole.USER, 0), Instant.now().plusSeconds(60));
+        store.put("other", user(2, UserRole.USER, 0), Instant.now().plusSeconds(60));
+
+        assertThat(store.find("first")).isEmpty();
+        assertThat(store.find("second")).isPresent();
+        assertThat(gauge()).isEqualTo(2);
+    }
+
+    @Test
+    void removesByTokenAndByUser() {
+        InMemoryRefreshTokenStore store = store(Duration.ofMinutes(1), "");
+        store.put("a", user(1, UserRole.USER, 0), Instant.now().plusSeconds(60));
+        store.put("b", user(2, UserRole.USER, 0), Instant.now().plusSeconds(60));
+
+        store.remove("a");
+        assertThat(store.find("a")).isEmpty();
+        assertThat(store.removeByUser(1)).isZero();
+
+        assertThat(store.removeByUser(2)).isEqualTo(1);
+        assertThat(store.find("b")).isEmpty();
+        assertThat(gauge()).isZero();
+    }
+
+    @Test
+    void wheelReclaimsExpiredTokens() throws InterruptedException {
+        InMemoryRefreshTokenStore store = store(Duration.ofMillis(20), "");
+        store.put("short", user(1, UserRole.USER, 0), Instant.now().plusMillis(100));
+        store.put("long", user(2, UserRole.USER, 0), Instant.now().plusSeconds(60));
+        store.onApplicationReady();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (gauge() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertThat(store.find("short")).isEmpty();
+        assertThat(store.find("long")).isPresent();
+        assertThat(meterRegistry.get("auth.refresh.tokens.expired").counter().count()).isEqualTo(1);
+        // The user index went with it, so the user has no token to remove
+        assertThat(store.removeByUser(1)).isZero();
+    }
+
+    @Test
+    void fileRestoresLiveTokensAfterRestart() {
+        String file = directory.resolve("tokens.log").toString();
+        InMemoryRefreshTokenStore first = store(Duration.ofMinutes(1), file);
+        first.put("kept", user(1, UserRole.USER, 0), Instant.now().plusSeconds(60));
+        first.put("replaced", user(2, UserRole.USER, 0), Instant.now().plusSeconds(60));
+        first.put("replacement", user(2, UserRole.USER, 1), Instant.now().plusSeconds(60));
+        first.put("removed", user(3, UserRole.USER, 0), Instant.now().plusSeconds(60));
+        first.put("expired", user(4, UserRole.USER, 0), Instant.now().minusSeconds(1));
+        first.remove("removed");
+        first.shutdown();
+
+        InMemoryRefreshTokenStore second = store(Duration.ofMinutes(1), file);
+        assertThat(second.find("kept")).isPresent();
+        assertThat(second.find("replaced")).isEmpty();
+        assertThat(second.find("replacement").orElseThrow().tokenVersion()).isEqualTo(1);
+        assertThat(second.find("removed")).isEmpty();
+        assertThat(second.find("expired")).isEmpty();
+        assertThat(second.removeByUser(2)).isEqualTo(1);
+        second.shutdown();
+
+        // The removal made after the restart survives the next one too
+        InMemoryRefreshTokenStore third = store(Duration.ofMinutes(1), file);
+        assertThat(third.find("kept")).isPresent();
+        assertThat(third.find("replacement")).isEmpty();
+    }
+
+    private InMemoryRefreshTokenStore store(Duration tick, String file) {
+        meterRegistry.clear();
+        InMemoryRefreshTokenStore store = new InMemoryRefreshTokenStore(meterRegistry, 4, tick, 64, file,
+                Duration.ofSeconds(1));
+        stores.add(store);
+        return store;
+    }
+
+    private double gauge() {
+        return meterRegistry.get("auth.refresh.tokens").gauge().value();
+    }
+
+    private static User user(long id, UserRole role, int tokenVersion) {
+        User user = new User("user" + id, "password", "user" + id + "@example.com", role);
+        user.setId(id);
+        user.setTokenVersion(tokenVersion);
+        return user;
+    }
+}